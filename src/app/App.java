@@ -1,19 +1,32 @@
 package app;
 
+import io.Scene;
+import io.SceneFiles;
+import models.CanvasEdit;
+import models.Circle;
+import models.Fill;
+import models.FillRule;
 import models.Line;
 import models.LineCanvas;
 import models.LineType;
 import models.Point;
+import models.Polygon;
+import models.StrokePattern;
 import modes.ModeManager;
 import modes.EditMode;
+import rasterizers.AntialiasedRasterizer;
+import rasterizers.BresenhamRasterizer;
 import rasterizers.CanvasRasterizer;
 import rasterizers.Rasterizer;
+import rasterizers.RenderStats;
 import rasterizers.TrivialRasterizer;
 import rasters.Raster;
 import rasters.RasterBufferedImage;
 import ui.UIPanel;
 import utils.Utils;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
@@ -21,29 +34,56 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
 import java.io.Serial;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class App {
 
     private final JPanel panel;
-    private final Raster raster;
-    private final Rasterizer rasterizer;
+    // Committed scene; only re-rasterized (fully or per region) when LineCanvas changes.
+    // Swapped with the render thread's back raster whenever a background redraw finishes.
+    private Raster raster;
+    private Rasterizer rasterizer;
+    // Transparent layer for rubber-band previews, composited over the scene in present().
+    private final Raster overlay;
+    private Rasterizer overlayRasterizer;
     private Point pPomocny;
     private final LineCanvas lineCanvas;
     private final CanvasRasterizer canvasRasterizer;
+    private final History history;
+    private final RenderThread renderThread;
+    // Area where recomputed fills changed pixels since History last asked; see takeFillDamage.
+    private Rectangle fillDamage;
+    // Edit mode drags: the scene without the dragged object, so drag frames only rasterize that object.
+    // The buffer is kept between drags; dragged is null while it holds nothing valid. It is filled from the
+    // front raster tile by tile, the first time a drag frame reaches a tile, so a pick copies nothing it
+    // does not need.
+    private static final int DRAG_TILE_SIZE = 64;
+    private RasterBufferedImage dragBackground;
+    private boolean[] dragTilesCopied;
+    private Object dragged;
+    // Damage clipped to the raster, reused by the per-frame drag and preview paths.
+    private final Rectangle frameRegion = new Rectangle();
     private boolean dottedMode = false;
     private boolean dashedMode = false;
     private boolean snapMode = false;
     private boolean fillMode = false;
     private int lineWidth = 1;
     private final List<Point> polygonPoints = new ArrayList<>();
+    // Rule for filling closed polygons, or null to keep only the outline.
+    private FillRule polygonFill;
     private int movingVertexIndex = -1;
     private static final int VERTEX_HIT_RADIUS = 6;
     private final JLabel mainModeLabel;
     private final JLabel secondaryLabel;
+    private final JLabel previewLabel;
     private final ModeManager modeManager;
+    private final PreviewScheduler previewScheduler;
     private final UIPanel uiPanel;
 
     // Color Palette
@@ -62,6 +102,7 @@ public class App {
 
     public void present(Graphics graphics) {
         raster.repaint(graphics);
+        overlay.repaint(graphics);
     }
 
     public void start() {
@@ -81,9 +122,16 @@ public class App {
 
         raster = new RasterBufferedImage(width, height);
         rasterizer = new TrivialRasterizer(raster, Color.white);
+        overlay = new RasterBufferedImage(width, height, true);
+        overlayRasterizer = new TrivialRasterizer(overlay, Color.white);
         lineCanvas = new LineCanvas();
+        lineCanvas.setIndexArea(width, height);
         canvasRasterizer = new CanvasRasterizer(rasterizer); // Updated constructor
+        registerStats(canvasRasterizer.getStats());
+        history = new History(this);
+        renderThread = new RenderThread(this, new RasterBufferedImage(width, height));
         modeManager = new ModeManager(this);
+        previewScheduler = new PreviewScheduler(this, modeManager, displayRefreshRate());
 
         panel = new JPanel() {
             @Serial
@@ -111,8 +159,12 @@ public class App {
         mainModeLabel.setBorder(new EmptyBorder(2, 6, 2, 6));
         secondaryLabel = new JLabel();
         secondaryLabel.setBorder(new EmptyBorder(2, 6, 2, 6));
+        previewLabel = new JLabel();
+        previewLabel.setBorder(new EmptyBorder(2, 6, 2, 6));
+        previewLabel.setHorizontalAlignment(JLabel.RIGHT);
 
         statusPanel.add(mainModeLabel, BorderLayout.WEST);
+        statusPanel.add(previewLabel, BorderLayout.CENTER);
         statusPanel.add(secondaryLabel, BorderLayout.EAST);
 
 
@@ -134,6 +186,21 @@ public class App {
         updateStatus();
     }
 
+    // Publishes render statistics over JMX (e.g. for jconsole); the app works without it.
+    private static void registerStats(RenderStats stats) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, new ObjectName("rasterizers:type=RenderStats"));
+        } catch (JMException ex) {
+            System.err.println("Render stats not registered: " + ex.getMessage());
+        }
+    }
+
+    // Previews are paced to the monitor; 60 Hz when the refresh rate is not reported.
+    private static int displayRefreshRate() {
+        int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? 60 : rate;
+    }
+
     public String executeCommand(String commandLine) {
         return Cmd.execute(this, commandLine);
     }
@@ -181,6 +248,33 @@ public class App {
         panel.requestFocusInWindow(); // Restore focus to panel
     }
 
+    public boolean setRasterizer(String name) {
+        Rasterizer newRasterizer = createRasterizer(name, raster);
+        if (newRasterizer == null) {
+            return false;
+        }
+        rasterizer = newRasterizer;
+        overlayRasterizer = createRasterizer(name, overlay);
+        canvasRasterizer.setRasterizer(newRasterizer);
+        // Seeded fills were bounded by the old rasterizer's outlines.
+        lineCanvas.invalidateAllFills();
+        history.invalidateSnapshots();
+        redrawCanvas();
+        panel.repaint();
+        return true;
+    }
+
+    private Rasterizer createRasterizer(String name, Raster target) {
+        if (name.equalsIgnoreCase("trivial")) {
+            return new TrivialRasterizer(target, rasterizer.getColor());
+        } else if (name.equalsIgnoreCase("bresenham")) {
+            return new BresenhamRasterizer(target, rasterizer.getColor());
+        } else if (name.equalsIgnoreCase("antialiased")) {
+            return new AntialiasedRasterizer(target, rasterizer.getColor());
+        }
+        return null;
+    }
+
     public void refresh() {
         updateStatus();
         panel.repaint();
@@ -191,6 +285,9 @@ public class App {
     public void setDashed(boolean v) { dashedMode = v; }
     public void toggleDashed() { dashedMode = !dashedMode; }
     public void setSnap(boolean v) { snapMode = v; }
+    public void setParallelRendering(boolean v) { canvasRasterizer.setParallel(v); redrawCanvas(); }
+    public void toggleParallelRendering() { setParallelRendering(!canvasRasterizer.isParallel()); }
+    public void setPreviewFps(int fps) { previewScheduler.setTargetFps(fps); }
     public void toggleSnap() { snapMode = !snapMode; }
     public void setPolygonMode(boolean v) {
         if (v) {
@@ -212,12 +309,78 @@ public class App {
     public void toggleFill() {
         setFill(!fillMode);
     }
+
+    // Null restores the built-in pattern. Outlines change everywhere, so does every fill they bound.
+    public void setStrokePattern(LineType lineType, StrokePattern pattern) {
+        lineType.setPattern(pattern);
+        lineCanvas.invalidateAllFills();
+        history.invalidateSnapshots();
+        redrawCanvas();
+        panel.repaint();
+    }
+
+    public void setPolygonFill(FillRule rule) {
+        polygonFill = rule;
+    }
+
+    public FillRule getPolygonFill() {
+        return polygonFill;
+    }
     
-    public void clearLines() { 
-        lineCanvas.getLines().clear(); 
-        lineCanvas.getCircles().clear(); 
-        lineCanvas.getFills().clear();
-        polygonPoints.clear(); 
+    // Undoable: the current pixels are kept as a snapshot, so undo does not re-rasterize the scene.
+    public void clearLines() {
+        if (!lineCanvas.getLines().isEmpty() || !lineCanvas.getCircles().isEmpty() || !lineCanvas.getFills().isEmpty()
+                || !lineCanvas.getPolygons().isEmpty()) {
+            history.checkpoint();
+            CanvasEdit edit = CanvasEdit.clear(lineCanvas);
+            lineCanvas.clear();
+            redrawCanvas();
+            history.record(edit);
+        }
+        polygonPoints.clear();
+    }
+
+    public void record(CanvasEdit edit) {
+        history.record(edit);
+    }
+
+    public boolean undo() {
+        boolean done = history.undo();
+        updateStatus();
+        return done;
+    }
+
+    public boolean redo() {
+        boolean done = history.redo();
+        updateStatus();
+        return done;
+    }
+
+    public void saveScene(Path path) throws IOException {
+        SceneFiles.save(new Scene(raster.getWidth(), raster.getHeight(), 0x000000, lineCanvas), path);
+    }
+
+    // Replaces the canvas with the scene from the file; seeded fills are resolved by the redraw.
+    public void loadScene(Path path) throws IOException {
+        Scene scene = SceneFiles.load(path);
+        clearLines();
+        LineCanvas loaded = scene.getCanvas();
+        for (Line line : loaded.getLines()) {
+            lineCanvas.addLine(line);
+        }
+        for (Circle circle : loaded.getCircles()) {
+            lineCanvas.addCircle(circle);
+        }
+        for (Fill fill : loaded.getFills()) {
+            lineCanvas.addFill(fill);
+        }
+        for (Polygon polygon : loaded.getPolygons()) {
+            lineCanvas.addPolygon(polygon);
+        }
+        clearOverlay();
+        redrawCanvas();
+        history.reset();
+        panel.repaint();
     }
 
     private LineType getLineType() {
@@ -231,17 +394,31 @@ public class App {
     }
 
     private void finalizePolygon() {
+        List<CanvasEdit> edges = new ArrayList<>();
         if (polygonPoints.size() >= 3) {
             int n = polygonPoints.size();
+            if (polygonFill != null) {
+                Polygon area = new Polygon(polygonPoints, rasterizer.getColor().getRGB(), polygonFill);
+                lineCanvas.addPolygon(area);
+                edges.add(CanvasEdit.addPolygon(area));
+            }
             for (int i = 0; i < n; i++) {
                 Point a = polygonPoints.get(i);
                 Point b = polygonPoints.get((i + 1) % n);
-                lineCanvas.addLine(new Line(a, b, rasterizer.getColor(), getLineType(), lineWidth));
+                // Own copies of the vertices, so moving one edge in Edit mode leaves its neighbours alone.
+                Line edge = new Line(new Point(a.getX(), a.getY()), new Point(b.getX(), b.getY()),
+                        rasterizer.getColor(), getLineType(), lineWidth);
+                lineCanvas.addLine(edge);
+                edges.add(CanvasEdit.addLine(edge));
             }
         }
         polygonPoints.clear();
+        clearOverlay();
         redrawCanvas();
         panel.repaint();
+        if (!edges.isEmpty()) {
+            history.record(CanvasEdit.group(edges));
+        }
     }
 
     public void updateStatus() {
@@ -251,6 +428,7 @@ public class App {
         String snap = snapMode ? "Snap: ON" : "Snap: OFF";
         mainModeLabel.setText(main);
         secondaryLabel.setText(dotted + "   " + snap + "   " + dashed);
+        previewLabel.setText(previewScheduler.getStatus());
     }
 
     public boolean samePoint(Point a, Point b) {
@@ -274,11 +452,16 @@ public class App {
 
     public void setCurrentColor(Color color) {
         rasterizer.setColor(color);
+        overlayRasterizer.setColor(color);
+        CanvasEdit edit = null;
         if (modeManager.getCurrentMode() instanceof EditMode) {
-            ((EditMode) modeManager.getCurrentMode()).updateSelectedObjectColor(color);
+            edit = ((EditMode) modeManager.getCurrentMode()).updateSelectedObjectColor(color);
         }
         redrawCanvas();
         panel.repaint();
+        if (edit != null) {
+            history.record(edit);
+        }
         panel.requestFocusInWindow();
     }
 
@@ -287,15 +470,30 @@ public class App {
     }
 
     public void setLineWidth(int lineWidth) {
+        // The slider reports every value it is set to, also the one adoptStyle just put there.
+        if (lineWidth == this.lineWidth) return;
         this.lineWidth = lineWidth;
+        CanvasEdit edit = null;
         if (modeManager.getCurrentMode() instanceof EditMode) {
-            ((EditMode) modeManager.getCurrentMode()).updateSelectedObjectLineWidth(lineWidth);
+            edit = ((EditMode) modeManager.getCurrentMode()).updateSelectedObjectLineWidth(lineWidth);
         }
         redrawCanvas();
         panel.repaint();
+        if (edit != null) {
+            history.record(edit);
+        }
         panel.requestFocusInWindow();
     }
     
+    // Makes a picked object's color and width the current ones. The scene does not change, so unlike
+    // setCurrentColor and setLineWidth this neither edits the selection nor redraws anything.
+    public void adoptStyle(Color color, int lineWidth) {
+        rasterizer.setColor(color);
+        overlayRasterizer.setColor(color);
+        this.lineWidth = lineWidth;
+        updateUIPanelProperties(color, lineWidth);
+    }
+
     public Color getRasterizerColor() {
         return rasterizer.getColor();
     }
@@ -314,16 +512,169 @@ public class App {
         uiPanel.updateColorDisplay(getRasterizerColor());
     }
 
+    // Full redraw on the render thread; the current picture stays up until the new one is swapped in.
     public void redrawCanvas() {
-        clear(0x000000); // Changed to black
-        canvasRasterizer.rasterize(lineCanvas);
+        dragged = null;
+        resolveFills();
+        renderThread.requestRedraw();
+    }
+
+    // Recomputes fills whose outlines changed; returns where their pixels changed, or null.
+    private Rectangle resolveFills() {
+        Rectangle refilled = canvasRasterizer.resolveFills(lineCanvas);
+        if (refilled != null) {
+            fillDamage = fillDamage == null ? refilled : fillDamage.union(refilled);
+        }
+        return refilled;
+    }
+
+    // Fills follow their outlines, so an edit can change pixels far outside its own bounds. History asks
+    // for that area right after recording an edit.
+    Rectangle takeFillDamage() {
+        Rectangle damage = fillDamage;
+        fillDamage = null;
+        return damage;
+    }
+
+    // Waits for background redraws, for code that reads or copies the scene raster.
+    public void awaitRender() {
+        renderThread.await();
+    }
+
+    // EDT: makes the freshly rendered raster the front one and returns the old front for reuse.
+    Raster swapRaster(Raster front) {
+        Raster old = raster;
+        raster = front;
+        // The drag background was copied from the old front raster.
+        dragged = null;
+        rasterizer = rasterizer.forRaster(raster);
+        canvasRasterizer.setRasterizer(rasterizer);
+        return old;
+    }
+
+    // Invalidates part of the cached scene: clears the damaged rectangle, re-rasterizes the objects
+    // touching it under a clip and repaints just that part of the panel.
+    // Fills that had to be recomputed are redrawn wherever they changed, too.
+    public void redrawRegion(Rectangle damage) {
+        Rectangle refilled = resolveFills();
+        if (refilled != null) {
+            damage = damage.isEmpty() ? refilled : damage.union(refilled);
+        }
+        Rectangle region = clipToRaster(damage, raster);
+        if (region.isEmpty()) return;
+
+        raster.setClip(region.x, region.y, region.width, region.height);
+        raster.fillRect(region.x, region.y, region.width, region.height, 0x000000);
+        canvasRasterizer.rasterize(lineCanvas, region);
+        raster.clearClip();
+        renderThread.noteDamage(region);
+        panel.repaint(region.x, region.y, region.width, region.height);
+    }
+
+    // Starts dragging a line or circle covering bounds: copies the scene and re-rasterizes just that area
+    // without the object. Fills stay as they are until endDrag resolves them.
+    // The front raster is used as it is: if a background redraw is still running, its swap drops the cache.
+    public void beginDrag(Object object, Rectangle bounds) {
+        int width = raster.getWidth(), height = raster.getHeight();
+        if (dragBackground == null || dragBackground.getWidth() != width || dragBackground.getHeight() != height) {
+            dragBackground = new RasterBufferedImage(width, height);
+            int cols = (width + DRAG_TILE_SIZE - 1) / DRAG_TILE_SIZE;
+            int rows = (height + DRAG_TILE_SIZE - 1) / DRAG_TILE_SIZE;
+            dragTilesCopied = new boolean[cols * rows];
+        } else {
+            Arrays.fill(dragTilesCopied, false);
+        }
+        Rectangle region = bounds.intersection(new Rectangle(0, 0, width, height));
+        if (!region.isEmpty()) {
+            copyDragTiles(region);
+            dragBackground.setClip(region.x, region.y, region.width, region.height);
+            dragBackground.fillRect(region.x, region.y, region.width, region.height, 0x000000);
+            CanvasRasterizer background = new CanvasRasterizer(rasterizer.forRaster(dragBackground));
+            background.setStats(canvasRasterizer.getStats());
+            background.rasterize(lineCanvas, region, object);
+            dragBackground.clearClip();
+        }
+        dragged = object;
+    }
+
+    // One drag frame: restores the damaged rectangle from the cached background and lets draw put the
+    // dragged object on top of it. Without a valid cache this is a plain redrawRegion.
+    public void redrawDrag(Rectangle damage, Runnable draw) {
+        if (dragged == null) {
+            redrawRegion(damage);
+            return;
+        }
+        Rectangle region = clipToRaster(damage, raster);
+        if (region.isEmpty()) return;
+
+        copyDragTiles(region);
+        raster.setClip(region.x, region.y, region.width, region.height);
+        for (int y = region.y; y < region.y + region.height; y++) {
+            raster.copyRow(dragBackground, y, region.x, region.x + region.width - 1);
+        }
+        draw.run();
+        raster.clearClip();
+        renderThread.noteDamage(region);
+        panel.repaint(region.x, region.y, region.width, region.height);
+    }
+
+    // Copies the tiles of region the background does not have yet from the front raster. Drag frames only
+    // change the front raster inside tiles copied before, so the rest of it still shows the scene.
+    private void copyDragTiles(Rectangle region) {
+        int width = raster.getWidth(), height = raster.getHeight();
+        int cols = (width + DRAG_TILE_SIZE - 1) / DRAG_TILE_SIZE;
+        for (int row = region.y / DRAG_TILE_SIZE; row <= (region.y + region.height - 1) / DRAG_TILE_SIZE; row++) {
+            for (int col = region.x / DRAG_TILE_SIZE; col <= (region.x + region.width - 1) / DRAG_TILE_SIZE; col++) {
+                if (dragTilesCopied[row * cols + col]) continue;
+                dragTilesCopied[row * cols + col] = true;
+                int x0 = col * DRAG_TILE_SIZE, x1 = Math.min(x0 + DRAG_TILE_SIZE, width) - 1;
+                int yEnd = Math.min((row + 1) * DRAG_TILE_SIZE, height);
+                for (int y = row * DRAG_TILE_SIZE; y < yEnd; y++) {
+                    dragBackground.copyRow(raster, y, x0, x1);
+                }
+            }
+        }
+    }
+
+    // Drops the cached background and redraws where the object landed, in its place in the drawing order
+    // and with the fills it bounds resolved.
+    public void endDrag(Rectangle bounds) {
+        if (dragged == null) return;
+        dragged = null;
+        redrawRegion(bounds);
+    }
+
+    // Redraws the preview layer inside the damaged rectangle; the cached scene is left untouched.
+    public void redrawOverlay(Rectangle damage, Runnable preview) {
+        Rectangle region = clipToRaster(damage, overlay);
+        if (region.isEmpty()) return;
+
+        overlay.setClip(region.x, region.y, region.width, region.height);
+        overlay.fillRect(region.x, region.y, region.width, region.height, 0);
+        if (preview != null) {
+            preview.run();
+        }
+        overlay.clearClip();
+        panel.repaint(region.x, region.y, region.width, region.height);
+    }
+
+    private Rectangle clipToRaster(Rectangle damage, Raster target) {
+        int x0 = Math.max(damage.x, 0), y0 = Math.max(damage.y, 0);
+        int x1 = Math.min(damage.x + damage.width, target.getWidth());
+        int y1 = Math.min(damage.y + damage.height, target.getHeight());
+        frameRegion.setBounds(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+        return frameRegion;
+    }
+
+    public void clearOverlay() {
+        overlay.clear();
     }
 
     public void drawPolygonEdges() {
         for (int i = 1; i < polygonPoints.size(); i++) {
             Point a = polygonPoints.get(i - 1);
             Point b = polygonPoints.get(i);
-            rasterizer.rasterize(new Line(a, b, getLineType()));
+            overlayRasterizer.rasterizeLine(a.getX(), a.getY(), b.getX(), b.getY(), 0, getLineType(), 1);
         }
     }
 
@@ -331,12 +682,12 @@ public class App {
         if (polygonPoints.size() >= 2) {
             Point first = polygonPoints.get(0);
             Point last = polygonPoints.get(polygonPoints.size() - 1);
-            rasterizer.rasterize(new Line(last, first, getLineType()));
+            overlayRasterizer.rasterizeLine(last.getX(), last.getY(), first.getX(), first.getY(), 0, getLineType(), 1);
         }
     }
 
     public void redrawPolygon() {
-        redrawCanvas();
+        clearOverlay();
         drawPolygonEdges();
         drawPolygonClosingEdge();
         panel.repaint();
@@ -345,17 +696,17 @@ public class App {
     private class AppMouseAdapter extends MouseAdapter {
         @Override
         public void mousePressed(MouseEvent e) {
-            modeManager.mousePressed(e);
+            previewScheduler.mousePressed(e);
         }
 
         @Override
         public void mouseReleased(MouseEvent e) {
-            modeManager.mouseReleased(e);
+            previewScheduler.mouseReleased(e);
         }
 
         @Override
         public void mouseDragged(MouseEvent e) {
-            modeManager.mouseDragged(e);
+            previewScheduler.mouseDragged(e);
         }
     }
 
@@ -370,9 +721,18 @@ public class App {
                 dashedMode = true;
                 updateStatus();
             }
+            if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_Z) {
+                if (e.isShiftDown()) redo(); else undo();
+                return;
+            }
+            if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_Y) {
+                redo();
+                return;
+            }
             if (e.getKeyCode() == KeyEvent.VK_C) {
                 clearLines();
                 clear(0x000000); // Changed to black
+                clearOverlay();
                 panel.repaint();
             }
             if (e.getKeyCode() == KeyEvent.VK_F) {
@@ -429,8 +789,11 @@ public class App {
     // getters for modes
     public Raster getRaster() { return raster; }
     public Rasterizer getRasterizer() { return rasterizer; }
+    public Rasterizer getOverlayRasterizer() { return overlayRasterizer; }
     public LineCanvas getLineCanvas() { return lineCanvas; }
     public CanvasRasterizer getCanvasRasterizer() { return canvasRasterizer; }
+    public History getHistory() { return history; }
+    public PreviewScheduler getPreviewScheduler() { return previewScheduler; }
     public boolean isDottedMode() { return dottedMode; }
     public boolean isDashedMode() { return dashedMode; }
     public List<Point> getPolygonPoints() { return polygonPoints; }
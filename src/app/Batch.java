@@ -0,0 +1,121 @@
+package app;
+
+import io.Scene;
+import io.SceneFiles;
+import rasterizers.AntialiasedRasterizer;
+import rasterizers.BresenhamRasterizer;
+import rasterizers.CanvasRasterizer;
+import rasterizers.Rasterizer;
+import rasterizers.TrivialRasterizer;
+import rasters.RasterBufferedImage;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless renderer: scene file in, PNG out, without opening any window.
+ * Given a directory it renders every scene file in it (text or binary), several files at once.
+ */
+public class Batch {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        String rasterizerName = "bresenham";
+        int threads = Runtime.getRuntime().availableProcessors();
+        String input = null, output = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--rasterizer") && i + 1 < args.length) {
+                rasterizerName = args[++i];
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (input == null) {
+                input = args[i];
+            } else if (output == null) {
+                output = args[i];
+            }
+        }
+        if (input == null || output == null) {
+            System.err.println("Usage: Batch <scene|directory> <out.png|directory> [--rasterizer trivial|bresenham|antialiased] [--threads n]");
+            System.exit(2);
+        }
+
+        Path in = Paths.get(input);
+        Path out = Paths.get(output);
+        if (Files.isDirectory(in)) {
+            int failed = renderDirectory(in, out, rasterizerName, threads);
+            System.exit(failed == 0 ? 0 : 1);
+        } else {
+            renderFile(in, out, rasterizerName);
+        }
+    }
+
+    // Renders every scene in the directory into outDir, one file per task on a pool of the given size.
+    // Each scene is rasterized sequentially; the parallelism comes from rendering many files at once.
+    public static int renderDirectory(Path inDir, Path outDir, String rasterizerName, int threads) throws Exception {
+        List<Path> scenes;
+        try (Stream<Path> files = Files.list(inDir)) {
+            scenes = files.filter(SceneFiles::isSceneFile).sorted().collect(Collectors.toList());
+        }
+        Files.createDirectories(outDir);
+
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> scenes.parallelStream().forEach(scene -> {
+                String name = scene.getFileName().toString();
+                Path png = outDir.resolve(name.substring(0, name.lastIndexOf('.')) + ".png");
+                try {
+                    renderFile(scene, png, rasterizerName);
+                } catch (IOException | RuntimeException ex) {
+                    failed.incrementAndGet();
+                    System.err.println(name + ": " + ex.getMessage());
+                }
+            })).get();
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Rendered %d of %d scenes in %.2f s (%.0f scenes/min, %d threads)%n",
+                scenes.size() - failed.get(), scenes.size(), seconds, scenes.size() / seconds * 60, threads);
+        return failed.get();
+    }
+
+    public static void renderFile(Path scenePath, Path png, String rasterizerName) throws IOException {
+        RasterBufferedImage raster = render(SceneFiles.load(scenePath), rasterizerName);
+        if (!ImageIO.write(raster.getImg(), "png", png.toFile())) {
+            throw new IOException("no PNG writer available");
+        }
+    }
+
+    public static RasterBufferedImage render(Scene scene, String rasterizerName) {
+        RasterBufferedImage raster = new RasterBufferedImage(scene.getWidth(), scene.getHeight());
+        raster.setClearColor(scene.getBackground());
+        raster.clear();
+
+        Rasterizer rasterizer;
+        if (rasterizerName.equalsIgnoreCase("trivial")) {
+            rasterizer = new TrivialRasterizer(raster, Color.white);
+        } else if (rasterizerName.equalsIgnoreCase("bresenham")) {
+            rasterizer = new BresenhamRasterizer(raster, Color.white);
+        } else if (rasterizerName.equalsIgnoreCase("antialiased")) {
+            rasterizer = new AntialiasedRasterizer(raster, Color.white);
+        } else {
+            throw new IllegalArgumentException("Unknown rasterizer: " + rasterizerName);
+        }
+        CanvasRasterizer canvasRasterizer = new CanvasRasterizer(rasterizer);
+        canvasRasterizer.resolveFills(scene.getCanvas());
+        canvasRasterizer.rasterize(scene.getCanvas());
+        return raster;
+    }
+}
@@ -1,5 +1,12 @@
 package app;
 
+import models.Fill;
+import models.FillRule;
+import models.LineType;
+import models.StrokePattern;
+import rasterizers.RenderStats;
+
+import java.nio.file.Paths;
 import java.util.function.Consumer;
 
 public class Cmd {
@@ -16,7 +23,7 @@ public class Cmd {
         try {
             switch (cmd) {
                 case "help":
-                    return "Commands: help, clear [hex], clearLines|c, dotted on|off|toggle, snap on|off|toggle, polygon on|off|close, fill on|off|toggle, echo <text>, color <hex>";
+                    return "Commands: help, clear [hex], clearLines|c, dotted on|off|toggle, snap on|off|toggle, polygon on|off|close|fill none|evenodd|nonzero, fill on|off|toggle, echo <text>, color <hex>, fills, rasterizer trivial|bresenham|antialiased, parallel on|off|toggle, save <file>, load <file>, undo, redo, fps [n], stats [on|off|reset], dash solid|dotted|dashed [reset|<lengths> [offset=n]]";
                 case "echo":
                     return line.substring(Math.min(line.length(), 5)).trim();
                 case "clear":
@@ -38,6 +45,34 @@ public class Cmd {
                     return handleBooleanOption(parts, app::setFill, app::toggleFill, app, "Fill updated");
                 case "color":
                     return handleColor(app, parts);
+                case "fills":
+                    return handleFills(app);
+                case "parallel":
+                    return handleBooleanOption(parts, app::setParallelRendering, app::toggleParallelRendering, app, "Parallel rendering set");
+                case "rasterizer":
+                    if (parts.length < 2) return "Usage: rasterizer trivial|bresenham|antialiased";
+                    return app.setRasterizer(parts[1]) ? "Rasterizer set" : "Unknown rasterizer: " + parts[1];
+                case "undo":
+                    return app.undo() ? "Undone" : "Nothing to undo";
+                case "redo":
+                    return app.redo() ? "Redone" : "Nothing to redo";
+                case "fps":
+                    if (parts.length < 2) return "Preview target: " + app.getPreviewScheduler().getTargetFps() + " fps";
+                    app.setPreviewFps(Integer.parseInt(parts[1]));
+                    return "Preview target set";
+                case "stats":
+                    return handleStats(app, parts);
+                case "dash":
+                    return handleDash(app, parts);
+                case "save":
+                    if (parts.length < 2) return "Usage: save <file> (.scene = text, otherwise binary)";
+                    app.saveScene(Paths.get(line.substring(4).trim()));
+                    return "Saved";
+                case "load":
+                    if (parts.length < 2) return "Usage: load <file>";
+                    app.loadScene(Paths.get(line.substring(4).trim()));
+                    app.refresh();
+                    return "Loaded";
                 default:
                     return "Unknown command: " + cmd;
             }
@@ -63,6 +98,38 @@ public class Cmd {
         return "Color set";
     }
 
+    private static String handleFills(App app) {
+        long spans = 0, pixels = 0, bytes = 0;
+        for (Fill fill : app.getLineCanvas().getFills()) {
+            spans += fill.getSpanCount();
+            pixels += fill.getPixelCount();
+            bytes += fill.getMemoryBytes();
+        }
+        double replayMs = app.getCanvasRasterizer().getLastFillReplayNanos() / 1e6;
+        return String.format("Fills: %d, spans: %d, pixels: %d, memory: %.1f KB, last replay: %.2f ms",
+                app.getLineCanvas().getFills().size(), spans, pixels, bytes / 1024.0, replayMs);
+    }
+
+    private static String handleStats(App app, String[] parts) {
+        RenderStats stats = app.getCanvasRasterizer().getStats();
+        if (parts.length >= 2) {
+            switch (parts[1].toLowerCase()) {
+                case "on":
+                    stats.setPixelCounting(true);
+                    return "Pixel counting on";
+                case "off":
+                    stats.setPixelCounting(false);
+                    return "Pixel counting off";
+                case "reset":
+                    stats.reset();
+                    return "Stats reset";
+                default:
+                    return "Usage: stats [on|off|reset]";
+            }
+        }
+        return stats.toString();
+    }
+
     private static int parseColor(String arg) {
         if (arg.startsWith("0x") || arg.startsWith("#")) {
             arg = arg.replaceFirst("#", "0x");
@@ -84,9 +151,40 @@ public class Cmd {
         return successMsg;
     }
 
+    // Lengths are in multiples of the line width, on first; an on length of 0 is a dot.
+    private static String handleDash(App app, String[] parts) {
+        if (parts.length < 2) return "Usage: dash solid|dotted|dashed [reset|<lengths> [offset=n]]";
+        LineType lineType = LineType.valueOf(parts[1].toUpperCase());
+        if (parts.length == 2) return lineType + ": " + lineType.getPattern();
+        if (parts[2].equalsIgnoreCase("reset")) {
+            app.setStrokePattern(lineType, null);
+            return "Pattern reset";
+        }
+        int offset = 0;
+        int count = parts.length - 2;
+        if (parts[parts.length - 1].toLowerCase().startsWith("offset=")) {
+            offset = Integer.parseInt(parts[parts.length - 1].substring(7));
+            count--;
+        }
+        int[] dashes = new int[count];
+        for (int i = 0; i < count; i++) {
+            dashes[i] = Integer.parseInt(parts[2 + i]);
+        }
+        app.setStrokePattern(lineType, new StrokePattern(dashes, offset));
+        return "Pattern set";
+    }
+
     private static String handlePolygon(App app, String[] parts) {
-        if (parts.length < 2) return "Usage: polygon on|off|close";
+        if (parts.length < 2) return "Usage: polygon on|off|close|fill none|evenodd|nonzero";
         String arg = parts[1];
+        if (arg.equalsIgnoreCase("fill")) {
+            if (parts.length < 3) return "Polygon fill: " + (app.getPolygonFill() == null ? "none" : app.getPolygonFill());
+            if (parts[2].equalsIgnoreCase("none")) app.setPolygonFill(null);
+            else if (parts[2].equalsIgnoreCase("evenodd")) app.setPolygonFill(FillRule.EVEN_ODD);
+            else if (parts[2].equalsIgnoreCase("nonzero")) app.setPolygonFill(FillRule.NON_ZERO);
+            else return "Unknown polygon fill: " + parts[2];
+            return "Polygon fill set";
+        }
         if (arg.equalsIgnoreCase("on")) app.setPolygonMode(true);
         else if (arg.equalsIgnoreCase("off")) { app.setPolygonMode(false); app.finalizePolygonPublic(); }
         else if (arg.equalsIgnoreCase("close")) { app.finalizePolygonPublic(); app.setPolygonMode(false); }
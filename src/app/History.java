@@ -0,0 +1,192 @@
+package app;
+
+import models.CanvasEdit;
+import rasters.Raster;
+import rasters.RasterBufferedImage;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Undo/redo over a log of canvas edits. Every few edits a copy of the scene raster is kept, so stepping
+ * back redraws whichever is smaller: the area the undone edits touched, or the area changed since the
+ * nearest older snapshot. Undoing a clear restores pixels instead of re-rasterizing the whole scene.
+ */
+public class History {
+
+    private static final int SNAPSHOT_INTERVAL = 32;
+    private static final int MAX_SNAPSHOTS = 6;
+
+    private static class Snapshot {
+        int position;
+        final RasterBufferedImage pixels;
+
+        Snapshot(int position, RasterBufferedImage pixels) {
+            this.position = position;
+            this.pixels = pixels;
+        }
+    }
+
+    private final App app;
+    private final List<CanvasEdit> edits = new ArrayList<>();
+    // Per edit, the area where fills followed the edited outlines (null if none); part of the edit's damage.
+    private final List<Rectangle> fillDamage = new ArrayList<>();
+    // edits[0, position) are applied to the canvas; the rest can be redone.
+    private int position;
+    // Ordered by position.
+    private final List<Snapshot> snapshots = new ArrayList<>();
+
+    public History(App app) {
+        this.app = app;
+    }
+
+    // Adds an edit that was already made and drawn; drops anything that could have been redone.
+    public void record(CanvasEdit edit) {
+        truncate();
+        Rectangle refilled = app.takeFillDamage();
+        CanvasEdit last = position > 0 ? edits.get(position - 1) : null;
+        if (last != null && last.absorb(edit)) {
+            // The state after the last edit changed, so a snapshot of it is stale.
+            dropSnapshotsAfter(position - 1);
+            Rectangle before = fillDamage.get(position - 1);
+            fillDamage.set(position - 1, before == null ? refilled : refilled == null ? before : before.union(refilled));
+        } else {
+            edits.add(edit);
+            fillDamage.add(refilled);
+            position++;
+        }
+        int lastSnapshot = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1).position;
+        if (position - lastSnapshot >= SNAPSHOT_INTERVAL) {
+            takeSnapshot();
+        }
+    }
+
+    // Call before an edit that repaints the whole scene (like clearing it) while the raster is still current.
+    public void checkpoint() {
+        if (snapshots.isEmpty() || snapshots.get(snapshots.size() - 1).position != position) {
+            truncate();
+            takeSnapshot();
+        }
+    }
+
+    public boolean undo() {
+        if (position == 0) return false;
+        edits.get(position - 1).revert(app.getLineCanvas());
+        show(position, position - 1);
+        // Already covered by the recorded fill damage; don't charge it to the next edit.
+        app.takeFillDamage();
+        position--;
+        return true;
+    }
+
+    public boolean redo() {
+        if (position == edits.size()) return false;
+        edits.get(position).apply(app.getLineCanvas());
+        show(position, position + 1);
+        app.takeFillDamage();
+        position++;
+        return true;
+    }
+
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    public boolean canRedo() {
+        return position < edits.size();
+    }
+
+    // Forgets all edits, e.g. after loading another scene.
+    public void reset() {
+        edits.clear();
+        fillDamage.clear();
+        snapshots.clear();
+        app.takeFillDamage();
+        position = 0;
+    }
+
+    // Snapshots are only valid for the pixels the current rasterizer produces.
+    public void invalidateSnapshots() {
+        snapshots.clear();
+    }
+
+    // The canvas is already in state "to"; bring the raster there from state "from".
+    private void show(int from, int to) {
+        Rectangle direct = damage(Math.min(from, to), Math.max(from, to));
+        Snapshot snapshot = null;
+        for (Snapshot s : snapshots) {
+            if (s.position <= to) snapshot = s;
+        }
+        Rectangle fromSnapshot = snapshot != null ? damage(snapshot.position, to) : null;
+
+        if (direct != null && (snapshot == null || area(direct) <= area(fromSnapshot))) {
+            app.redrawRegion(direct);
+        } else if (snapshot != null && fromSnapshot != null) {
+            restore(snapshot);
+            if (!fromSnapshot.isEmpty()) {
+                app.redrawRegion(fromSnapshot);
+            }
+            app.getPanel().repaint();
+        } else {
+            app.redrawCanvas();
+            app.getPanel().repaint();
+        }
+    }
+
+    // Union of the bounds of edits[from, to); empty for no edits, null if one of them touches everything.
+    private Rectangle damage(int from, int to) {
+        Rectangle damage = new Rectangle();
+        for (int i = from; i < to; i++) {
+            Rectangle bounds = edits.get(i).getBounds();
+            if (bounds == null) return null;
+            damage = damage.isEmpty() ? bounds : damage.union(bounds);
+            Rectangle refilled = fillDamage.get(i);
+            if (refilled != null) {
+                damage = damage.isEmpty() ? refilled : damage.union(refilled);
+            }
+        }
+        return damage;
+    }
+
+    private static long area(Rectangle r) {
+        return r == null ? Long.MAX_VALUE : (long) r.width * r.height;
+    }
+
+    private void truncate() {
+        if (position < edits.size()) {
+            edits.subList(position, edits.size()).clear();
+            fillDamage.subList(position, fillDamage.size()).clear();
+            dropSnapshotsAfter(position);
+        }
+    }
+
+    private void dropSnapshotsAfter(int position) {
+        snapshots.removeIf(s -> s.position > position);
+    }
+
+    private void takeSnapshot() {
+        app.awaitRender();
+        Raster raster = app.getRaster();
+        Snapshot snapshot;
+        if (snapshots.size() == MAX_SNAPSHOTS) {
+            // Reuse the oldest buffer; the snapshot list stays short, the edit log does not.
+            snapshot = snapshots.remove(0);
+            snapshot.position = position;
+        } else {
+            snapshot = new Snapshot(position, new RasterBufferedImage(raster.getWidth(), raster.getHeight()));
+        }
+        for (int y = 0; y < raster.getHeight(); y++) {
+            snapshot.pixels.copyRow(raster, y, 0, raster.getWidth() - 1);
+        }
+        snapshots.add(snapshot);
+    }
+
+    private void restore(Snapshot snapshot) {
+        app.awaitRender();
+        Raster raster = app.getRaster();
+        for (int y = 0; y < raster.getHeight(); y++) {
+            raster.copyRow(snapshot.pixels, y, 0, raster.getWidth() - 1);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package app;
+
+import modes.ModeManager;
+
+import javax.swing.Timer;
+import java.awt.event.MouseEvent;
+
+/**
+ * Paces drag previews to the display. Drag events only replace the pending one; the mode sees the newest
+ * event at most once per frame at the target rate, so a 1000 Hz mouse does not cost 1000 redraws a second.
+ * Press and release flush the pending drag first, so modes still see the last position before a release.
+ */
+public class PreviewScheduler {
+
+    private static final long STATUS_INTERVAL_NANOS = 250_000_000L;
+
+    private final App app;
+    private final ModeManager modeManager;
+    private final Timer timer;
+    private MouseEvent pending;
+    private long frameNanos;
+    private long lastFrameStart;
+    private long lastStatusUpdate;
+
+    // Counters for the current drag; reset on press.
+    private long events;
+    private long frames;
+    private long coalesced;
+    private long lastRenderNanos;
+    private long maxRenderNanos;
+
+    public PreviewScheduler(App app, ModeManager modeManager, int targetFps) {
+        this.app = app;
+        this.modeManager = modeManager;
+        this.timer = new Timer(0, e -> runFrame());
+        this.timer.setRepeats(false);
+        setTargetFps(targetFps);
+    }
+
+    public void setTargetFps(int fps) {
+        if (fps <= 0) throw new IllegalArgumentException("fps must be positive");
+        frameNanos = 1_000_000_000L / fps;
+    }
+
+    public int getTargetFps() {
+        return (int) (1_000_000_000L / frameNanos);
+    }
+
+    public void mousePressed(MouseEvent e) {
+        flush();
+        events = frames = coalesced = 0;
+        lastRenderNanos = maxRenderNanos = 0;
+        modeManager.mousePressed(e);
+    }
+
+    public void mouseDragged(MouseEvent e) {
+        events++;
+        if (pending != null) {
+            coalesced++;
+            pending = e;
+            return;
+        }
+        pending = e;
+        long wait = lastFrameStart + frameNanos - System.nanoTime();
+        if (wait <= 0) {
+            runFrame();
+        } else {
+            timer.setInitialDelay((int) Math.max(1, wait / 1_000_000L));
+            timer.restart();
+        }
+    }
+
+    public void mouseReleased(MouseEvent e) {
+        flush();
+        modeManager.mouseReleased(e);
+        app.updateStatus();
+    }
+
+    // Hands a waiting drag event to the mode now instead of at the next frame.
+    public void flush() {
+        timer.stop();
+        if (pending != null) runFrame();
+    }
+
+    private void runFrame() {
+        MouseEvent e = pending;
+        if (e == null) return;
+        pending = null;
+        long start = System.nanoTime();
+        lastFrameStart = start;
+        modeManager.mouseDragged(e);
+        long end = System.nanoTime();
+        frames++;
+        lastRenderNanos = end - start;
+        maxRenderNanos = Math.max(maxRenderNanos, lastRenderNanos);
+        // Relabelling every frame would add a layout pass per frame; a few times a second is enough to read.
+        if (end - lastStatusUpdate >= STATUS_INTERVAL_NANOS) {
+            lastStatusUpdate = end;
+            app.updateStatus();
+        }
+    }
+
+    public String getStatus() {
+        if (events == 0) return "";
+        return String.format("Preview: %d/%d frames, %d coalesced, %.1f ms (max %.1f) @ %d fps",
+                frames, events, coalesced, lastRenderNanos / 1e6, maxRenderNanos / 1e6, getTargetFps());
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+}
@@ -0,0 +1,160 @@
+package app;
+
+import models.PrimitiveStore;
+import rasterizers.CanvasRasterizer;
+import rasterizers.Rasterizer;
+import rasterizers.RenderStats;
+import rasters.Raster;
+
+import javax.swing.SwingUtilities;
+import java.awt.Rectangle;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Full-scene redraws off the event dispatch thread. The EDT keeps presenting (and patching) the front
+ * raster while this thread rasterizes a snapshot of the canvas into the back raster; the finished back
+ * raster is swapped in on the EDT. At most one frame renders at a time and newer requests replace the
+ * waiting one, so a burst of requests costs one extra frame, not one frame each.
+ */
+public class RenderThread {
+
+    // One full redraw. The render thread only reads scene, parallel, target and rasterizer, all set before
+    // the frame is queued; damage belongs to the EDT. The scene is a PrimitiveStore copy of the canvas, since
+    // the EDT keeps editing lines and circles in place while the frame renders. Fills and polygons are shared:
+    // their spans are only ever replaced as a whole.
+    private static class Frame {
+        final PrimitiveStore scene;
+        final Rasterizer source;
+        final boolean parallel;
+        final RenderStats stats;
+        Raster target;
+        Rasterizer rasterizer;
+        // Areas the EDT repainted on the front raster after the snapshot was taken; replayed after the swap.
+        Rectangle damage;
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Frame(PrimitiveStore scene, Rasterizer source, boolean parallel, RenderStats stats) {
+            this.scene = scene;
+            this.source = source;
+            this.parallel = parallel;
+            this.stats = stats;
+        }
+    }
+
+    private final App app;
+    private final BlockingQueue<Frame> queue = new LinkedBlockingQueue<>();
+    private Raster back;
+    private Frame inFlight;
+    private Frame pending;
+    private long framesRendered;
+    private long framesCoalesced;
+
+    public RenderThread(App app, Raster back) {
+        this.app = app;
+        this.back = back;
+        Thread thread = new Thread(this::run, "render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // EDT: snapshot the canvas and render it in the background.
+    public void requestRedraw() {
+        CanvasRasterizer canvasRasterizer = app.getCanvasRasterizer();
+        Frame frame = new Frame(PrimitiveStore.of(app.getLineCanvas()), app.getRasterizer(), canvasRasterizer.isParallel(), canvasRasterizer.getStats());
+        if (inFlight == null) {
+            submit(frame);
+        } else {
+            if (pending != null) framesCoalesced++;
+            pending = frame;
+        }
+    }
+
+    // EDT: the front raster was repainted here; the frames not yet swapped in must repeat it.
+    public void noteDamage(Rectangle region) {
+        if (inFlight != null) inFlight.damage = union(inFlight.damage, region);
+        if (pending != null) pending.damage = union(pending.damage, region);
+    }
+
+    // EDT: blocks until every requested frame is on screen, for code that reads or copies the raster.
+    public void await() {
+        while (inFlight != null) {
+            Frame frame = inFlight;
+            try {
+                frame.done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            swap(frame);
+        }
+    }
+
+    public boolean isBusy() {
+        return inFlight != null;
+    }
+
+    public long getFramesRendered() {
+        return framesRendered;
+    }
+
+    public long getFramesCoalesced() {
+        return framesCoalesced;
+    }
+
+    private void submit(Frame frame) {
+        frame.target = back;
+        frame.rasterizer = frame.source.forRaster(back);
+        inFlight = frame;
+        queue.add(frame);
+    }
+
+    // EDT: make the finished frame the front raster and start the next one.
+    private void swap(Frame frame) {
+        if (frame != inFlight) return;
+        back = app.swapRaster(frame.target);
+        framesRendered++;
+        inFlight = null;
+        if (frame.damage != null) {
+            app.redrawRegion(frame.damage);
+        }
+        app.getPanel().repaint();
+        if (pending != null) {
+            Frame next = pending;
+            pending = null;
+            submit(next);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Frame frame;
+            try {
+                frame = queue.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            try {
+                Raster target = frame.target;
+                target.clearClip();
+                target.setClearColor(0x000000);
+                target.clear();
+                CanvasRasterizer canvasRasterizer = new CanvasRasterizer(frame.rasterizer);
+                canvasRasterizer.setParallel(frame.parallel);
+                canvasRasterizer.setStats(frame.stats);
+                canvasRasterizer.rasterize(frame.scene);
+            } catch (RuntimeException ex) {
+                // Keep the thread alive; the EDT still gets the (partial) frame and can request another.
+                System.err.println("Render failed: " + ex);
+            } finally {
+                frame.done.countDown();
+                SwingUtilities.invokeLater(() -> swap(frame));
+            }
+        }
+    }
+
+    private static Rectangle union(Rectangle a, Rectangle b) {
+        return a == null ? new Rectangle(b) : a.union(b);
+    }
+}
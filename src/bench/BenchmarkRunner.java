@@ -0,0 +1,74 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Minimal JMH-style harness: timed warmup, then timed measurement iterations of a single operation.
+ * Reports throughput and the allocation rate of the benchmark thread (like JMH's -prof gc).
+ */
+public class BenchmarkRunner {
+
+    private final long warmupMillis;
+    private final long measureMillis;
+    private final int iterations;
+    private final String filter;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Consumed by benchmarks so the JIT cannot drop their work.
+    public static volatile long sink;
+
+    public BenchmarkRunner(long warmupMillis, long measureMillis, int iterations, String filter) {
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+        this.iterations = iterations;
+        this.filter = filter;
+    }
+
+    public void printHeader() {
+        System.out.printf(Locale.ROOT, "%-48s %14s %10s %14s %12s%n", "Benchmark", "ops/s", "error %", "alloc MB/s", "alloc B/op");
+    }
+
+    public void run(String name, Runnable operation) {
+        if (filter != null && !name.contains(filter)) return;
+
+        loop(operation, warmupMillis);
+
+        double[] throughput = new double[iterations];
+        long totalOps = 0;
+        long totalNanos = 0;
+        long allocated = 0;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            long ops = loop(operation, measureMillis);
+            long nanos = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(thread) - bytesBefore;
+            throughput[i] = ops / (nanos / 1e9);
+            totalOps += ops;
+            totalNanos += nanos;
+        }
+
+        double mean = totalOps / (totalNanos / 1e9);
+        double variance = 0;
+        for (double t : throughput) {
+            variance += (t - mean) * (t - mean);
+        }
+        double errorPercent = iterations > 1 ? 100 * Math.sqrt(variance / (iterations - 1)) / mean : 0;
+        double allocRate = allocated / (totalNanos / 1e9) / (1024 * 1024);
+        System.out.printf(Locale.ROOT, "%-48s %14.1f %10.1f %14.1f %12.0f%n",
+                name, mean, errorPercent, allocRate, allocated / (double) totalOps);
+    }
+
+    private static long loop(Runnable operation, long millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        long ops = 0;
+        do {
+            operation.run();
+            ops++;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+}
@@ -0,0 +1,193 @@
+package bench;
+
+import models.Circle;
+import models.Fill;
+import models.Line;
+import models.LineCanvas;
+import models.LineType;
+import models.Point;
+import models.PrimitiveStore;
+import models.SpanList;
+import rasterizers.AntialiasedRasterizer;
+import rasterizers.BresenhamRasterizer;
+import rasterizers.CanvasRasterizer;
+import rasterizers.Rasterizer;
+import rasterizers.ScanlineFill;
+import rasterizers.TrivialRasterizer;
+import rasters.RasterBufferedImage;
+
+import java.awt.Color;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * Benchmark suite for the rasterizers and the flood fill.
+ * Run headless: java -Djava.awt.headless=true -cp out bench.RasterBenchmarks [name filter]
+ */
+public class RasterBenchmarks {
+
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : null;
+        BenchmarkRunner runner = new BenchmarkRunner(1000, 1000, 5, filter);
+        runner.printHeader();
+
+        lineBenchmarks(runner);
+        circleBenchmarks(runner);
+        fillBenchmarks(runner);
+        sceneBenchmarks(runner);
+    }
+
+    private static void lineBenchmarks(BenchmarkRunner runner) {
+        RasterBufferedImage raster = new RasterBufferedImage(WIDTH, HEIGHT);
+        Rasterizer[] rasterizers = {new TrivialRasterizer(raster, Color.white), new BresenhamRasterizer(raster, Color.white),
+                new AntialiasedRasterizer(raster, Color.white)};
+        for (Rasterizer rasterizer : rasterizers) {
+            for (int width : new int[]{1, 5, 20}) {
+                for (LineType type : LineType.values()) {
+                    Line[] lines = randomLines(256, width, type, new Random(42));
+                    int[] next = {0};
+                    runner.run("line." + rasterizer.getClass().getSimpleName() + ".w" + width + "." + type,
+                            () -> rasterizer.rasterize(lines[next[0]++ & 255]));
+                }
+            }
+        }
+    }
+
+    private static void circleBenchmarks(BenchmarkRunner runner) {
+        RasterBufferedImage raster = new RasterBufferedImage(WIDTH, HEIGHT);
+        Rasterizer[] rasterizers = {new TrivialRasterizer(raster, Color.white), new AntialiasedRasterizer(raster, Color.white)};
+        for (Rasterizer rasterizer : rasterizers) {
+            for (int radius : new int[]{10, 50, 250}) {
+                for (int width : new int[]{1, 10}) {
+                    Circle circle = new Circle(new Point(WIDTH / 2, HEIGHT / 2), radius, LineType.SOLID, Color.red, width);
+                    runner.run("circle." + rasterizer.getClass().getSimpleName() + ".r" + radius + ".w" + width,
+                            () -> rasterizer.rasterize(circle));
+                }
+            }
+        }
+    }
+
+    private static void fillBenchmarks(BenchmarkRunner runner) {
+        RasterBufferedImage raster = new RasterBufferedImage(WIDTH, HEIGHT);
+        int[] empty = new int[WIDTH * HEIGHT];
+        int[] maze = maze(new Random(42));
+        int fillColor = 0xffff0000;
+
+        for (String name : new String[]{"empty", "maze"}) {
+            int[] source = name.equals("empty") ? empty : maze;
+            runner.run("fill.scanline." + name, () -> {
+                System.arraycopy(source, 0, raster.getPixels(), 0, source.length);
+                SpanList spans = new SpanList();
+                ScanlineFill.floodFill(raster, 1, 1, raster.getPixel(1, 1), fillColor, spans);
+                BenchmarkRunner.sink += spans.size();
+            });
+            runner.run("fill.bfsReference." + name, () -> {
+                System.arraycopy(source, 0, raster.getPixels(), 0, source.length);
+                BenchmarkRunner.sink += bfsFill(raster, 1, 1, raster.getPixel(1, 1), fillColor);
+            });
+        }
+    }
+
+    private static void sceneBenchmarks(BenchmarkRunner runner) {
+        RasterBufferedImage raster = new RasterBufferedImage(WIDTH, HEIGHT);
+        for (int objects : new int[]{1_000, 10_000, 100_000}) {
+            LineCanvas canvas = randomScene(objects, new Random(42));
+            PrimitiveStore store = PrimitiveStore.of(canvas);
+            for (boolean parallel : new boolean[]{false, true}) {
+                CanvasRasterizer canvasRasterizer = new CanvasRasterizer(new TrivialRasterizer(raster, Color.white));
+                CanvasRasterizer antialiased = new CanvasRasterizer(new AntialiasedRasterizer(raster, Color.white));
+                antialiased.setParallel(parallel);
+                runner.run("scene." + objects + ".antialiased" + (parallel ? ".parallel" : ".sequential"), () -> {
+                    raster.clear();
+                    antialiased.rasterize(canvas);
+                });
+                canvasRasterizer.setParallel(parallel);
+                runner.run("scene." + objects + (parallel ? ".parallel" : ".sequential"), () -> {
+                    raster.clear();
+                    canvasRasterizer.rasterize(canvas);
+                });
+                runner.run("scene." + objects + ".store" + (parallel ? ".parallel" : ".sequential"), () -> {
+                    raster.clear();
+                    canvasRasterizer.rasterize(store);
+                });
+            }
+        }
+    }
+
+    private static Line[] randomLines(int count, int width, LineType type, Random random) {
+        Line[] lines = new Line[count];
+        for (int i = 0; i < count; i++) {
+            Point p1 = new Point(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            Point p2 = new Point(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            lines[i] = new Line(p1, p2, new Color(random.nextInt()), type, width);
+        }
+        return lines;
+    }
+
+    // Mostly short lines with some circles and a few fill bands, like a busy drawing.
+    private static LineCanvas randomScene(int objects, Random random) {
+        LineCanvas canvas = new LineCanvas();
+        for (int i = 0; i < objects; i++) {
+            LineType type = LineType.values()[random.nextInt(3)];
+            Color color = new Color(random.nextInt());
+            int x = random.nextInt(WIDTH);
+            int y = random.nextInt(HEIGHT);
+            if (i % 5 == 0) {
+                canvas.addCircle(new Circle(new Point(x, y), 5 + random.nextInt(60), type, color, 1 + random.nextInt(5)));
+            } else {
+                Point p2 = new Point(x + random.nextInt(200) - 100, y + random.nextInt(200) - 100);
+                canvas.addLine(new Line(new Point(x, y), p2, color, type, 1 + random.nextInt(8)));
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            SpanList spans = new SpanList();
+            int top = random.nextInt(HEIGHT - 50);
+            for (int y = top; y < top + 50; y++) {
+                spans.add(y, random.nextInt(WIDTH / 2), WIDTH / 2 + random.nextInt(WIDTH / 2));
+            }
+            canvas.addFill(new Fill(spans, random.nextInt()));
+        }
+        return canvas;
+    }
+
+    // Random walls on a grid, leaving corridors so the fill has to wind around.
+    private static int[] maze(Random random) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean wall = (x % 8 == 0 && random.nextInt(10) < 8) || (y % 8 == 0 && random.nextInt(10) < 3);
+                pixels[y * WIDTH + x] = wall ? 0xffffff : 0;
+            }
+        }
+        pixels[WIDTH + 1] = 0;
+        return pixels;
+    }
+
+    // The original FillMode algorithm (4-neighbour BFS over Point objects), kept as a baseline.
+    private static int bfsFill(RasterBufferedImage raster, int x, int y, int targetColor, int replacementColor) {
+        Queue<Point> queue = new LinkedList<>();
+        queue.add(new Point(x, y));
+        int filled = 0;
+        while (!queue.isEmpty()) {
+            Point p = queue.poll();
+            int px = p.getX();
+            int py = p.getY();
+            if (px < 0 || px >= raster.getWidth() || py < 0 || py >= raster.getHeight()) {
+                continue;
+            }
+            if (raster.getPixel(px, py) == targetColor) {
+                raster.setPixel(px, py, replacementColor);
+                filled++;
+                queue.add(new Point(px + 1, py));
+                queue.add(new Point(px - 1, py));
+                queue.add(new Point(px, py + 1));
+                queue.add(new Point(px, py - 1));
+            }
+        }
+        return filled;
+    }
+}
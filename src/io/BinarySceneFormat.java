@@ -0,0 +1,242 @@
+package io;
+
+import models.Circle;
+import models.Fill;
+import models.FillRule;
+import models.Line;
+import models.LineCanvas;
+import models.LineType;
+import models.Point;
+import models.Polygon;
+import models.PrimitiveStore;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary scene file. Everything is a little-endian 32-bit int:
+ * <pre>
+ * header  magic 'LCVS', version, width, height, background, lineCount, circleCount, fillCount
+ * line    x1, y1, x2, y2, argb, style
+ * circle  cx, cy, radius, argb, style
+ * fill    argb, spanCount, then spanCount (y, x0, x1) triples; or argb, -1, seedX, seedY for a seeded fill
+ * then    polygonCount, and per polygon argb, fill rule ordinal, vertexCount, then vertexCount (x, y) pairs
+ * </pre>
+ * style packs the stroke width and line type as in {@link PrimitiveStore}. An argb of 0 means "no color",
+ * which rasterizers draw with their current color.
+ */
+public class BinarySceneFormat {
+
+    public static final int MAGIC = 'L' | 'C' << 8 | 'V' << 16 | 'S' << 24;
+    // Version 2 added seeded fill records, version 3 filled polygons; older files still load.
+    public static final int VERSION = 3;
+    private static final int SEEDED = -1;
+    private static final int HEADER_INTS = 8;
+    private static final int LINE_INTS = 6;
+    private static final int CIRCLE_INTS = 5;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int LINE_TYPE_COUNT = LineType.values().length;
+    // Far wider than any canvas; a larger width in a file is corrupt, not a thick line.
+    static final int MAX_LINE_WIDTH = 4096;
+    private static final FillRule[] FILL_RULES = FillRule.values();
+
+    public static void write(Scene scene, Path path) throws IOException {
+        LineCanvas canvas = scene.getCanvas();
+        List<Line> lines = canvas.getLines();
+        List<Circle> circles = canvas.getCircles();
+        List<Fill> fills = canvas.getFills();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            IntWriter out = new IntWriter(channel);
+            out.put(MAGIC);
+            out.put(VERSION);
+            out.put(scene.getWidth());
+            out.put(scene.getHeight());
+            out.put(scene.getBackground());
+            out.put(lines.size());
+            out.put(circles.size());
+            out.put(fills.size());
+            for (Line line : lines) {
+                out.put(line.getP1().getX());
+                out.put(line.getP1().getY());
+                out.put(line.getP2().getX());
+                out.put(line.getP2().getY());
+                out.put(argb(line.getColor()));
+                out.put(PrimitiveStore.style(line.getLineWidth(), line.getLineType()));
+            }
+            for (Circle circle : circles) {
+                out.put(circle.getCenter().getX());
+                out.put(circle.getCenter().getY());
+                out.put(circle.getRadius());
+                out.put(argb(circle.getColor()));
+                out.put(PrimitiveStore.style(circle.getLineWidth(), circle.getLineType()));
+            }
+            for (Fill fill : fills) {
+                out.put(fill.getColor());
+                if (fill.isSeeded()) {
+                    out.put(SEEDED);
+                    out.put(fill.getSeedX());
+                    out.put(fill.getSeedY());
+                    continue;
+                }
+                out.put(fill.getSpanCount());
+                for (int value : fill.getSpans()) {
+                    out.put(value);
+                }
+            }
+            List<Polygon> polygons = canvas.getPolygons();
+            out.put(polygons.size());
+            for (Polygon polygon : polygons) {
+                out.put(polygon.getColor());
+                out.put(polygon.getRule().ordinal());
+                out.put(polygon.getVertexCount());
+                for (int i = 0; i < polygon.getVertexCount(); i++) {
+                    out.put(polygon.getX(i));
+                    out.put(polygon.getY(i));
+                }
+            }
+            out.flush();
+        }
+    }
+
+    // Maps the file and reads records straight from the mapped buffer in bulk; nothing is copied twice.
+    public static Scene read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4L * HEADER_INTS || size % 4 != 0) {
+                throw new IOException("not a binary scene file: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            IntBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            if (in.get() != MAGIC) {
+                throw new IOException("not a binary scene file: " + path);
+            }
+            int version = in.get();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("unsupported scene version " + version + " in " + path);
+            }
+            Scene scene = new Scene(in.get(), in.get(), in.get());
+            int lineCount = in.get();
+            int circleCount = in.get();
+            int fillCount = in.get();
+            if (lineCount < 0 || circleCount < 0 || fillCount < 0
+                    || (long) lineCount * LINE_INTS + (long) circleCount * CIRCLE_INTS > in.remaining()) {
+                throw new IOException("truncated scene file: " + path);
+            }
+
+            LineCanvas canvas = scene.getCanvas();
+            ColorCache colors = new ColorCache();
+            int[] record = new int[LINE_INTS];
+            for (int i = 0; i < lineCount; i++) {
+                in.get(record, 0, LINE_INTS);
+                int style = record[5];
+                canvas.addLine(new Line(new Point(record[0], record[1]), new Point(record[2], record[3]),
+                        colors.get(record[4]), lineType(style), lineWidth(style)));
+            }
+            for (int i = 0; i < circleCount; i++) {
+                in.get(record, 0, CIRCLE_INTS);
+                int style = record[4];
+                if (record[2] < 0) throw new IOException("negative circle radius " + record[2]);
+                canvas.addCircle(new Circle(new Point(record[0], record[1]), record[2], lineType(style),
+                        colors.get(record[3]), lineWidth(style)));
+            }
+            for (int i = 0; i < fillCount; i++) {
+                if (in.remaining() < 2) throw new IOException("truncated scene file: " + path);
+                int color = in.get();
+                int spanCount = in.get();
+                if (spanCount == SEEDED && version >= 2) {
+                    if (in.remaining() < 2) throw new IOException("truncated scene file: " + path);
+                    canvas.addFill(new Fill(in.get(), in.get(), color));
+                    continue;
+                }
+                if (spanCount < 0 || 3L * spanCount > in.remaining()) throw new IOException("truncated scene file: " + path);
+                int[] spans = new int[3 * spanCount];
+                in.get(spans);
+                canvas.addFill(new Fill(spans, color));
+            }
+            if (version >= 3) {
+                readPolygons(in, canvas, path);
+            }
+            return scene;
+        }
+    }
+
+    private static void readPolygons(IntBuffer in, LineCanvas canvas, Path path) throws IOException {
+        if (in.remaining() < 1) throw new IOException("truncated scene file: " + path);
+        int polygonCount = in.get();
+        if (polygonCount < 0) throw new IOException("truncated scene file: " + path);
+        for (int i = 0; i < polygonCount; i++) {
+            if (in.remaining() < 3) throw new IOException("truncated scene file: " + path);
+            int color = in.get();
+            int rule = in.get();
+            int vertexCount = in.get();
+            if (rule < 0 || rule >= FILL_RULES.length) throw new IOException("bad fill rule " + rule);
+            if (vertexCount < 0 || 2L * vertexCount > in.remaining()) throw new IOException("truncated scene file: " + path);
+            int[] xs = new int[vertexCount], ys = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                xs[v] = in.get();
+                ys[v] = in.get();
+            }
+            canvas.addPolygon(new Polygon(xs, ys, color, FILL_RULES[rule]));
+        }
+    }
+
+    private static int argb(Color color) {
+        return color != null ? color.getRGB() : 0;
+    }
+
+    private static LineType lineType(int style) throws IOException {
+        if ((style & 3) >= LINE_TYPE_COUNT) throw new IOException("bad line type " + (style & 3));
+        return PrimitiveStore.lineType(style);
+    }
+
+    private static int lineWidth(int style) throws IOException {
+        int width = PrimitiveStore.lineWidth(style);
+        if (width < 1 || width > MAX_LINE_WIDTH) throw new IOException("bad line width " + width);
+        return width;
+    }
+
+    // Scenes use a handful of colors; sharing Color instances avoids one allocation per object.
+    private static class ColorCache {
+        private final Map<Integer, Color> colors = new HashMap<>();
+
+        Color get(int argb) {
+            if (argb == 0) return null;
+            return colors.computeIfAbsent(argb, c -> new Color(c, true));
+        }
+    }
+
+    // Buffers ints and writes them to the channel in large chunks.
+    private static class IntWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        IntWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void put(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io;
+
+import models.LineCanvas;
+
+/**
+ * Scene loaded from a file: canvas size, background and the objects to draw.
+ */
+public class Scene {
+
+    private final int width, height;
+    private final int background;
+    private final LineCanvas canvas;
+
+    public Scene(int width, int height, int background) {
+        this(width, height, background, new LineCanvas());
+    }
+
+    public Scene(int width, int height, int background, LineCanvas canvas) {
+        this.width = width;
+        this.height = height;
+        this.background = background;
+        this.canvas = canvas;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBackground() {
+        return background;
+    }
+
+    public LineCanvas getCanvas() {
+        return canvas;
+    }
+}
@@ -0,0 +1,48 @@
+package io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Picks the scene format: files ending in .scene or .txt are text, anything else is binary.
+ * Loading looks at the magic number instead, so a renamed file still loads.
+ */
+public class SceneFiles {
+
+    public static final String TEXT_SUFFIX = ".scene";
+    public static final String BINARY_SUFFIX = ".lcv";
+
+    public static Scene load(Path path) throws IOException {
+        return isBinary(path) ? BinarySceneFormat.read(path) : SceneReader.read(path);
+    }
+
+    public static void save(Scene scene, Path path) throws IOException {
+        if (isTextName(path)) {
+            SceneWriter.write(scene, path);
+        } else {
+            BinarySceneFormat.write(scene, path);
+        }
+    }
+
+    public static boolean isSceneFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(TEXT_SUFFIX) || name.endsWith(BINARY_SUFFIX);
+    }
+
+    private static boolean isTextName(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(TEXT_SUFFIX) || name.endsWith(".txt");
+    }
+
+    private static boolean isBinary(Path path) throws IOException {
+        byte[] head = new byte[4];
+        try (InputStream in = Files.newInputStream(path)) {
+            if (in.readNBytes(head, 0, 4) < 4) return false;
+        }
+        return ByteBuffer.wrap(head).order(ByteOrder.LITTLE_ENDIAN).getInt() == BinarySceneFormat.MAGIC;
+    }
+}
@@ -0,0 +1,221 @@
+package io;
+
+import models.Circle;
+import models.Fill;
+import models.FillRule;
+import models.Line;
+import models.LineType;
+import models.Point;
+import models.Polygon;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the text scene format, one record per line; lines starting with '#' are comments:
+ * <pre>
+ * size 800 600
+ * background 000000
+ * line x1 y1 x2 y2 [color=ff0000] [width=3] [type=solid|dotted|dashed]
+ * circle cx cy r [color=..] [width=..] [type=..]
+ * polygon x1 y1 x2 y2 x3 y3 ... [color=..] [width=..] [type=..]
+ * fillpolygon x1 y1 x2 y2 x3 y3 ... [color=..] [rule=evenodd|nonzero]
+ * fill x y color
+ * spans color y x0 x1 [y x0 x1 ...]
+ * </pre>
+ * polygon draws the outline, fillpolygon the filled area (nonzero rule by default).
+ * fill is a seeded fill bounded by the outlines, like a click in Fill mode; spans is a fixed pixel area.
+ * size and background must come before the first object. Colors are hex RGB, optionally prefixed by # or 0x.
+ */
+public class SceneReader {
+
+    public static final int DEFAULT_WIDTH = 800;
+    public static final int DEFAULT_HEIGHT = 600;
+
+    public static Scene read(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    public static Scene read(BufferedReader reader) throws IOException {
+        int width = DEFAULT_WIDTH, height = DEFAULT_HEIGHT, background = 0x000000;
+        Scene scene = null;
+        String text;
+        int lineNumber = 0;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            text = text.trim();
+            if (text.isEmpty() || text.startsWith("#")) continue;
+
+            String[] parts = text.split("\\s+");
+            String record = parts[0].toLowerCase();
+            try {
+                if (record.equals("size") || record.equals("background")) {
+                    if (scene != null) throw new IllegalArgumentException(record + " must come before the first object");
+                    if (record.equals("size")) {
+                        width = Integer.parseInt(parts[1]);
+                        height = Integer.parseInt(parts[2]);
+                        if (width <= 0 || height <= 0) throw new IllegalArgumentException("size must be positive");
+                    } else {
+                        background = parseColor(parts[1]);
+                    }
+                    continue;
+                }
+                if (scene == null) {
+                    scene = new Scene(width, height, background);
+                }
+                switch (record) {
+                    case "line":
+                        readLine(scene, parts);
+                        break;
+                    case "circle":
+                        readCircle(scene, parts);
+                        break;
+                    case "polygon":
+                        readPolygon(scene, parts);
+                        break;
+                    case "fillpolygon":
+                        readFillPolygon(scene, parts);
+                        break;
+                    case "fill":
+                        scene.getCanvas().addFill(new Fill(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), 0xff000000 | parseColor(parts[3])));
+                        break;
+                    case "spans":
+                        readSpans(scene, parts);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown record: " + parts[0]);
+                }
+            } catch (ArrayIndexOutOfBoundsException ex) {
+                throw new IOException("line " + lineNumber + ": missing arguments for " + record);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("line " + lineNumber + ": " + ex.getMessage());
+            }
+        }
+        return scene != null ? scene : new Scene(width, height, background);
+    }
+
+    private static void readLine(Scene scene, String[] parts) {
+        Style style = new Style(parts, 5);
+        Point a = new Point(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        Point b = new Point(Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+        scene.getCanvas().addLine(new Line(a, b, style.color, style.lineType, style.width));
+    }
+
+    private static void readCircle(Scene scene, String[] parts) {
+        Style style = new Style(parts, 4);
+        Point center = new Point(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        scene.getCanvas().addCircle(new Circle(center, Integer.parseInt(parts[3]), style.lineType, style.color, style.width));
+    }
+
+    private static void readSpans(Scene scene, String[] parts) {
+        if ((parts.length - 2) % 3 != 0) throw new IllegalArgumentException("spans need y x0 x1 triples");
+        int[] spans = new int[parts.length - 2];
+        for (int i = 0; i < spans.length; i++) {
+            spans[i] = Integer.parseInt(parts[i + 2]);
+        }
+        scene.getCanvas().addFill(new Fill(spans, 0xff000000 | parseColor(parts[1])));
+    }
+
+    // A polygon is stored the way Polygon mode closes one: as one line per edge, each with its own points.
+    private static void readPolygon(Scene scene, String[] parts) {
+        int end = vertexEnd(parts);
+        Style style = new Style(parts, end);
+        int n = (end - 1) / 2;
+        int[] xs = new int[n], ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = Integer.parseInt(parts[1 + 2 * i]);
+            ys[i] = Integer.parseInt(parts[2 + 2 * i]);
+        }
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            scene.getCanvas().addLine(new Line(new Point(xs[i], ys[i]), new Point(xs[j], ys[j]), style.color, style.lineType, style.width));
+        }
+    }
+
+    private static void readFillPolygon(Scene scene, String[] parts) {
+        int end = vertexEnd(parts);
+        Style style = new Style(parts, end);
+        int n = (end - 1) / 2;
+        int[] xs = new int[n], ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = Integer.parseInt(parts[1 + 2 * i]);
+            ys[i] = Integer.parseInt(parts[2 + 2 * i]);
+        }
+        scene.getCanvas().addPolygon(new Polygon(xs, ys, style.color.getRGB(), style.rule));
+    }
+
+    // Index of the first attribute after the x y pairs of a polygon record.
+    private static int vertexEnd(String[] parts) {
+        int end = 1;
+        while (end < parts.length && parts[end].indexOf('=') < 0) {
+            end++;
+        }
+        int coordinates = end - 1;
+        if (coordinates < 6 || coordinates % 2 != 0) {
+            throw new IllegalArgumentException(parts[0] + " needs at least three x y pairs");
+        }
+        return end;
+    }
+
+    // Optional key=value attributes following the geometry of a record.
+    private static class Style {
+        Color color = Color.white;
+        int width = 1;
+        LineType lineType = LineType.SOLID;
+        FillRule rule = FillRule.NON_ZERO;
+
+        Style(String[] parts, int from) {
+            for (int i = from; i < parts.length; i++) {
+                int eq = parts[i].indexOf('=');
+                if (eq < 0) throw new IllegalArgumentException("unexpected argument: " + parts[i]);
+                String key = parts[i].substring(0, eq).toLowerCase();
+                String value = parts[i].substring(eq + 1);
+                switch (key) {
+                    case "color":
+                        color = new Color(parseColor(value));
+                        break;
+                    case "width":
+                        width = Integer.parseInt(value);
+                        if (width < 1 || width > BinarySceneFormat.MAX_LINE_WIDTH) {
+                            throw new IllegalArgumentException("width must be 1.." + BinarySceneFormat.MAX_LINE_WIDTH);
+                        }
+                        break;
+                    case "type":
+                        lineType = LineType.valueOf(value.toUpperCase());
+                        break;
+                    case "rule":
+                        rule = parseRule(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown attribute: " + key);
+                }
+            }
+        }
+    }
+
+    static FillRule parseRule(String value) {
+        switch (value.toLowerCase().replace("_", "").replace("-", "")) {
+            case "evenodd":
+                return FillRule.EVEN_ODD;
+            case "nonzero":
+                return FillRule.NON_ZERO;
+            default:
+                throw new IllegalArgumentException("unknown fill rule: " + value);
+        }
+    }
+
+    static int parseColor(String value) {
+        if (value.startsWith("#")) {
+            value = value.substring(1);
+        } else if (value.startsWith("0x") || value.startsWith("0X")) {
+            value = value.substring(2);
+        }
+        return Integer.parseUnsignedInt(value, 16) & 0xffffff;
+    }
+}
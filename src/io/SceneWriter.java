@@ -0,0 +1,75 @@
+package io;
+
+import models.Circle;
+import models.Fill;
+import models.FillRule;
+import models.Line;
+import models.LineType;
+import models.Polygon;
+
+import java.awt.Color;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the text scene format read by {@link SceneReader}. Seeded fills are written as their seed,
+ * fills without one as their spans.
+ */
+public class SceneWriter {
+
+    public static void write(Scene scene, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(scene, writer);
+        }
+    }
+
+    public static void write(Scene scene, Writer out) throws IOException {
+        out.write("size " + scene.getWidth() + " " + scene.getHeight() + "\n");
+        out.write("background " + hex(scene.getBackground()) + "\n");
+        for (Line line : scene.getCanvas().getLines()) {
+            out.write("line " + line.getP1().getX() + " " + line.getP1().getY() + " "
+                    + line.getP2().getX() + " " + line.getP2().getY()
+                    + style(line.getColor(), line.getLineWidth(), line.getLineType()) + "\n");
+        }
+        for (Circle circle : scene.getCanvas().getCircles()) {
+            out.write("circle " + circle.getCenter().getX() + " " + circle.getCenter().getY() + " " + circle.getRadius()
+                    + style(circle.getColor(), circle.getLineWidth(), circle.getLineType()) + "\n");
+        }
+        for (Polygon polygon : scene.getCanvas().getPolygons()) {
+            StringBuilder record = new StringBuilder("fillpolygon");
+            for (int i = 0; i < polygon.getVertexCount(); i++) {
+                record.append(' ').append(polygon.getX(i)).append(' ').append(polygon.getY(i));
+            }
+            record.append(" color=").append(hex(polygon.getColor()));
+            record.append(" rule=").append(polygon.getRule() == FillRule.EVEN_ODD ? "evenodd" : "nonzero");
+            out.write(record.append('\n').toString());
+        }
+        for (Fill fill : scene.getCanvas().getFills()) {
+            if (fill.isSeeded()) {
+                out.write("fill " + fill.getSeedX() + " " + fill.getSeedY() + " " + hex(fill.getColor()) + "\n");
+                continue;
+            }
+            StringBuilder record = new StringBuilder("spans ").append(hex(fill.getColor()));
+            for (int value : fill.getSpans()) {
+                record.append(' ').append(value);
+            }
+            out.write(record.append('\n').toString());
+        }
+    }
+
+    private static String style(Color color, int width, LineType lineType) {
+        StringBuilder style = new StringBuilder();
+        if (color != null) style.append(" color=").append(hex(color.getRGB()));
+        if (width != 1) style.append(" width=").append(width);
+        if (lineType != null && lineType != LineType.SOLID) style.append(" type=").append(lineType.name().toLowerCase());
+        return style.toString();
+    }
+
+    private static String hex(int rgb) {
+        return String.format("%06x", rgb & 0xffffff);
+    }
+}
@@ -0,0 +1,401 @@
+package models;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One undoable change to a LineCanvas. Edits are recorded after they were made, so apply() is only
+ * used for redo and revert() for undo.
+ */
+public abstract class CanvasEdit {
+
+    public abstract void apply(LineCanvas canvas);
+
+    public abstract void revert(LineCanvas canvas);
+
+    // Pixels that can differ between the canvas before and after the edit; null means the whole canvas.
+    public abstract Rectangle getBounds();
+
+    // Folds the next edit into this one (e.g. steps of a width slider drag). Returns false if it cannot.
+    public boolean absorb(CanvasEdit next) {
+        return false;
+    }
+
+    public static CanvasEdit addLine(Line line) {
+        return new LineEdit(line, true, -1);
+    }
+
+    public static CanvasEdit removeLine(Line line, int index) {
+        return new LineEdit(line, false, index);
+    }
+
+    public static CanvasEdit addCircle(Circle circle) {
+        return new CircleEdit(circle, true, -1);
+    }
+
+    public static CanvasEdit removeCircle(Circle circle, int index) {
+        return new CircleEdit(circle, false, index);
+    }
+
+    public static CanvasEdit addFill(Fill fill) {
+        return new FillEdit(fill);
+    }
+
+    public static CanvasEdit addPolygon(Polygon polygon) {
+        return new PolygonEdit(polygon, true, -1);
+    }
+
+    public static CanvasEdit removePolygon(Polygon polygon, int index) {
+        return new PolygonEdit(polygon, false, index);
+    }
+
+    public static CanvasEdit group(List<CanvasEdit> edits) {
+        return new Group(new ArrayList<>(edits));
+    }
+
+    // The line already has its new points; from* are the points it had before.
+    public static CanvasEdit moveLine(Line line, Point fromP1, Point fromP2) {
+        return new MoveLine(line, fromP1, fromP2);
+    }
+
+    public static CanvasEdit moveCircle(Circle circle, Point fromCenter, int fromRadius) {
+        return new MoveCircle(circle, fromCenter, fromRadius);
+    }
+
+    // object is a Line or a Circle that already has its new color and width.
+    public static CanvasEdit restyle(Object object, Color fromColor, int fromWidth) {
+        return new Restyle(object, fromColor, fromWidth);
+    }
+
+    // Records the whole canvas content; apply() empties it, revert() puts everything back.
+    public static CanvasEdit clear(LineCanvas canvas) {
+        return new Clear(canvas);
+    }
+
+    private static class LineEdit extends CanvasEdit {
+        private final Line line;
+        private final boolean add;
+        private int index;
+
+        LineEdit(Line line, boolean add, int index) {
+            this.line = line;
+            this.add = add;
+            this.index = index;
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            if (add) canvas.addLine(line); else index = canvas.removeLine(line);
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            if (add) canvas.removeLine(line); else canvas.insertLine(index, line);
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return line.getBounds();
+        }
+    }
+
+    private static class CircleEdit extends CanvasEdit {
+        private final Circle circle;
+        private final boolean add;
+        private int index;
+
+        CircleEdit(Circle circle, boolean add, int index) {
+            this.circle = circle;
+            this.add = add;
+            this.index = index;
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            if (add) canvas.addCircle(circle); else index = canvas.removeCircle(circle);
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            if (add) canvas.removeCircle(circle); else canvas.insertCircle(index, circle);
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return circle.getBounds();
+        }
+    }
+
+    private static class FillEdit extends CanvasEdit {
+        private final Fill fill;
+
+        FillEdit(Fill fill) {
+            this.fill = fill;
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            canvas.addFill(fill);
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            canvas.removeFill(fill);
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return fill.getBounds();
+        }
+    }
+
+    private static class PolygonEdit extends CanvasEdit {
+        private final Polygon polygon;
+        private final boolean add;
+        private int index;
+
+        PolygonEdit(Polygon polygon, boolean add, int index) {
+            this.polygon = polygon;
+            this.add = add;
+            this.index = index;
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            if (add) canvas.addPolygon(polygon); else index = canvas.removePolygon(polygon);
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            if (add) canvas.removePolygon(polygon); else canvas.insertPolygon(index, polygon);
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return polygon.getBounds();
+        }
+    }
+
+    private static class Group extends CanvasEdit {
+        private final List<CanvasEdit> edits;
+
+        Group(List<CanvasEdit> edits) {
+            this.edits = edits;
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            for (CanvasEdit edit : edits) {
+                edit.apply(canvas);
+            }
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            for (int i = edits.size() - 1; i >= 0; i--) {
+                edits.get(i).revert(canvas);
+            }
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            Rectangle bounds = new Rectangle();
+            for (CanvasEdit edit : edits) {
+                Rectangle b = edit.getBounds();
+                if (b == null) return null;
+                bounds = bounds.isEmpty() ? b : bounds.union(b);
+            }
+            return bounds;
+        }
+    }
+
+    private static class MoveLine extends CanvasEdit {
+        private final Line line;
+        private final int[] from, to;
+
+        MoveLine(Line line, Point fromP1, Point fromP2) {
+            this.line = line;
+            this.from = new int[]{fromP1.getX(), fromP1.getY(), fromP2.getX(), fromP2.getY()};
+            this.to = new int[]{line.getP1().getX(), line.getP1().getY(), line.getP2().getX(), line.getP2().getY()};
+        }
+
+        private void moveTo(LineCanvas canvas, int[] p) {
+            Rectangle before = line.getBounds();
+            line.getP1().setX(p[0]);
+            line.getP1().setY(p[1]);
+            line.getP2().setX(p[2]);
+            line.getP2().setY(p[3]);
+            canvas.updateLine(line, before);
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            moveTo(canvas, to);
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            moveTo(canvas, from);
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            int r = (line.getLineWidth() - 1) / 2;
+            int minX = Math.min(Math.min(from[0], from[2]), Math.min(to[0], to[2])) - r;
+            int minY = Math.min(Math.min(from[1], from[3]), Math.min(to[1], to[3])) - r;
+            int maxX = Math.max(Math.max(from[0], from[2]), Math.max(to[0], to[2])) + r;
+            int maxY = Math.max(Math.max(from[1], from[3]), Math.max(to[1], to[3])) + r;
+            return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+        }
+    }
+
+    private static class MoveCircle extends CanvasEdit {
+        private final Circle circle;
+        private final int fromX, fromY, fromRadius;
+        private final int toX, toY, toRadius;
+
+        MoveCircle(Circle circle, Point fromCenter, int fromRadius) {
+            this.circle = circle;
+            this.fromX = fromCenter.getX();
+            this.fromY = fromCenter.getY();
+            this.fromRadius = fromRadius;
+            this.toX = circle.getCenter().getX();
+            this.toY = circle.getCenter().getY();
+            this.toRadius = circle.getRadius();
+        }
+
+        private void moveTo(LineCanvas canvas, int x, int y, int radius) {
+            Rectangle before = circle.getBounds();
+            circle.getCenter().setX(x);
+            circle.getCenter().setY(y);
+            circle.setRadius(radius);
+            canvas.updateCircle(circle, before);
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            moveTo(canvas, toX, toY, toRadius);
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            moveTo(canvas, fromX, fromY, fromRadius);
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            int w = (circle.getLineWidth() - 1) / 2;
+            int from = fromRadius + w, to = toRadius + w;
+            Rectangle before = new Rectangle(fromX - from, fromY - from, 2 * from + 1, 2 * from + 1);
+            return before.union(new Rectangle(toX - to, toY - to, 2 * to + 1, 2 * to + 1));
+        }
+    }
+
+    private static class Restyle extends CanvasEdit {
+        private final Object object;
+        private final Color fromColor, toColor;
+        private final int fromWidth;
+        private int toWidth;
+
+        Restyle(Object object, Color fromColor, int fromWidth) {
+            this.object = object;
+            this.fromColor = fromColor;
+            this.fromWidth = fromWidth;
+            if (object instanceof Line) {
+                this.toColor = ((Line) object).getColor();
+                this.toWidth = ((Line) object).getLineWidth();
+            } else {
+                this.toColor = ((Circle) object).getColor();
+                this.toWidth = ((Circle) object).getLineWidth();
+            }
+        }
+
+        private void set(LineCanvas canvas, Color color, int width) {
+            if (object instanceof Line) {
+                Line line = (Line) object;
+                Rectangle before = line.getBounds();
+                line.setColor(color);
+                line.setLineWidth(width);
+                canvas.updateLine(line, before);
+            } else {
+                Circle circle = (Circle) object;
+                Rectangle before = circle.getBounds();
+                circle.setColor(color);
+                circle.setLineWidth(width);
+                canvas.updateCircle(circle, before);
+            }
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            set(canvas, toColor, toWidth);
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            set(canvas, fromColor, fromWidth);
+        }
+
+        // The bounds at the wider of the two widths cover both states.
+        @Override
+        public Rectangle getBounds() {
+            Rectangle bounds = object instanceof Line ? ((Line) object).getBounds() : ((Circle) object).getBounds();
+            int current = object instanceof Line ? ((Line) object).getLineWidth() : ((Circle) object).getLineWidth();
+            int grow = (Math.max(fromWidth, toWidth) - 1) / 2 - (current - 1) / 2;
+            bounds.grow(grow, grow);
+            return bounds;
+        }
+
+        @Override
+        public boolean absorb(CanvasEdit next) {
+            if (!(next instanceof Restyle)) return false;
+            Restyle other = (Restyle) next;
+            if (other.object != object || !Objects.equals(other.toColor, toColor)) return false;
+            toWidth = other.toWidth;
+            return true;
+        }
+    }
+
+    private static class Clear extends CanvasEdit {
+        private final List<Line> lines;
+        private final List<Circle> circles;
+        private final List<Fill> fills;
+        private final List<Polygon> polygons;
+
+        Clear(LineCanvas canvas) {
+            this.lines = new ArrayList<>(canvas.getLines());
+            this.circles = new ArrayList<>(canvas.getCircles());
+            this.fills = new ArrayList<>(canvas.getFills());
+            this.polygons = new ArrayList<>(canvas.getPolygons());
+        }
+
+        @Override
+        public void apply(LineCanvas canvas) {
+            canvas.clear();
+        }
+
+        @Override
+        public void revert(LineCanvas canvas) {
+            for (Line line : lines) {
+                canvas.addLine(line);
+            }
+            for (Circle circle : circles) {
+                canvas.addCircle(circle);
+            }
+            for (Fill fill : fills) {
+                canvas.addFill(fill);
+            }
+            for (Polygon polygon : polygons) {
+                canvas.addPolygon(polygon);
+            }
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return null;
+        }
+    }
+}
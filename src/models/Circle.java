@@ -1,6 +1,7 @@
 package models;
 
 import java.awt.Color;
+import java.awt.Rectangle;
 
 public class Circle {
     private Point center;
@@ -65,4 +66,20 @@ public class Circle {
     public void setLineWidth(int lineWidth) {
         this.lineWidth = lineWidth;
     }
+
+    // Pixel bounding box of the rasterized circle, including its stroke width.
+    public Rectangle getBounds() {
+        return getBounds(new Rectangle());
+    }
+
+    // Same, written into out, for callers that run per frame.
+    public Rectangle getBounds(Rectangle out) {
+        return getBounds(center.getX(), center.getY(), radius, lineWidth, out);
+    }
+
+    public static Rectangle getBounds(int cx, int cy, int radius, int lineWidth, Rectangle out) {
+        int extent = radius + (lineWidth - 1) / 2;
+        out.setBounds(cx - extent, cy - extent, 2 * extent + 1, 2 * extent + 1);
+        return out;
+    }
 }
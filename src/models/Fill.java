@@ -1,21 +1,123 @@
 package models;
 
-import java.util.List;
+import java.awt.Rectangle;
 
+/**
+ * A filled area. A seeded fill keeps its seed point and is bounded by the outlines: its area is the
+ * 4-connected region around the seed of pixels that are (or, for a seed on an outline, are not) left empty
+ * by the lines and circles. The spans are only a cache of that region; LineCanvas marks the fill stale when
+ * an outline next to it changes and CanvasRasterizer.resolveFills recomputes it. A fill built from spans
+ * alone (old scene files) has no seed and never changes.
+ */
 public class Fill {
-    private List<Point> points;
-    private int color;
+    // Filled area as packed (y, x0, x1) triples, x1 inclusive. Replaced as a whole, never modified.
+    private volatile int[] spans;
+    private final int color;
+    private volatile Rectangle bounds;
+    private final boolean seeded;
+    private final int seedX, seedY;
+    private volatile boolean stale;
 
-    public Fill(List<Point> points, int color) {
-        this.points = points;
+    public Fill(SpanList spans, int color) {
+        this(spans.toArray(), color);
+    }
+
+    // Takes ownership of the packed span array.
+    public Fill(int[] spans, int color) {
+        this.spans = spans;
         this.color = color;
+        this.bounds = computeBounds(spans);
+        this.seeded = false;
+        this.seedX = this.seedY = 0;
+    }
+
+    // A seeded fill starts stale; its spans are computed on the next resolve.
+    public Fill(int seedX, int seedY, int color) {
+        this.spans = new int[0];
+        this.color = color;
+        this.bounds = new Rectangle();
+        this.seeded = true;
+        this.seedX = seedX;
+        this.seedY = seedY;
+        this.stale = true;
+    }
+
+    private static Rectangle computeBounds(int[] spans) {
+        if (spans.length == 0) return new Rectangle();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < spans.length; i += 3) {
+            minY = Math.min(minY, spans[i]);
+            maxY = Math.max(maxY, spans[i]);
+            minX = Math.min(minX, spans[i + 1]);
+            maxX = Math.max(maxX, spans[i + 2]);
+        }
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
     }
 
-    public List<Point> getPoints() {
-        return points;
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    public int getSeedX() {
+        return seedX;
+    }
+
+    public int getSeedY() {
+        return seedY;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    // An outline in the changed rectangle may have opened or cut the region: recompute before the next use.
+    // The old spans stay until then, so a frame already rendering still has something to draw.
+    void invalidate(Rectangle changed) {
+        if (!seeded || stale) return;
+        Rectangle b = bounds;
+        // Grown by one pixel: a removed outline only touches the region, it is not inside it.
+        if (changed.x <= b.x + b.width && b.x <= changed.x + changed.width
+                && changed.y <= b.y + b.height && b.y <= changed.y + changed.height) {
+            stale = true;
+        }
+    }
+
+    // Stores the recomputed region (takes ownership of the array).
+    public void setSpans(int[] spans) {
+        Rectangle newBounds = computeBounds(spans);
+        this.spans = spans;
+        this.bounds = newBounds;
+        this.stale = false;
+    }
+
+    public Rectangle getBounds() {
+        return bounds;
+    }
+
+    public int[] getSpans() {
+        return spans;
+    }
+
+    public int getSpanCount() {
+        return spans.length / 3;
     }
 
     public int getColor() {
         return color;
     }
+
+    public long getPixelCount() {
+        int[] spans = this.spans;
+        long count = 0;
+        for (int i = 0; i < spans.length; i += 3) {
+            count += spans[i + 2] - spans[i + 1] + 1;
+        }
+        return count;
+    }
+
+    // Approximate heap footprint: object header and fields plus the span array.
+    public long getMemoryBytes() {
+        return 40 + 16 + 4L * spans.length;
+    }
 }
@@ -0,0 +1,9 @@
+package models;
+
+// Which points a self-intersecting polygon covers.
+public enum FillRule {
+    // Inside where a ray from the point crosses the outline an odd number of times.
+    EVEN_ODD,
+    // Inside where the outline winds around the point at least once, in either direction.
+    NON_ZERO
+}
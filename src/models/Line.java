@@ -79,6 +79,26 @@ public class Line {
         this.lineWidth = lineWidth;
     }
 
+    // Pixel bounding box of the rasterized line, including its stroke width.
+    public Rectangle getBounds() {
+        return getBounds(new Rectangle());
+    }
+
+    // Same, written into out, for callers that run per frame.
+    public Rectangle getBounds(Rectangle out) {
+        return getBounds(p1.getX(), p1.getY(), p2.getX(), p2.getY(), lineWidth, out);
+    }
+
+    public static Rectangle getBounds(int x1, int y1, int x2, int y2, int lineWidth, Rectangle out) {
+        int r = (lineWidth - 1) / 2;
+        int minX = Math.min(x1, x2) - r;
+        int minY = Math.min(y1, y2) - r;
+        int maxX = Math.max(x1, x2) + r;
+        int maxY = Math.max(y1, y2) + r;
+        out.setBounds(minX, minY, maxX - minX + 1, maxY - minY + 1);
+        return out;
+    }
+
     public boolean isDotted() {
         return lineType == LineType.DOTTED;
     }
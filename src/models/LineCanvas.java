@@ -1,41 +1,267 @@
 package models;
 
+import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class LineCanvas {
 
+    private static final int INDEX_CELL_SIZE = 64;
+    private static final Rectangle EVERYWHERE =
+            new Rectangle(Integer.MIN_VALUE / 2, Integer.MIN_VALUE / 2, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
     private List<Line> lines;
     private List<Circle> circles;
     private List<Fill> fills;
+    private List<Polygon> polygons;
+    // Hit-testing index over line and circle bounds. Built by the first query and kept in sync by
+    // add/remove/update afterwards, so loading or batch-rendering a large scene never pays for it.
+    private final SpatialGrid<Line> lineIndex = new SpatialGrid<>(INDEX_CELL_SIZE);
+    private final SpatialGrid<Circle> circleIndex = new SpatialGrid<>(INDEX_CELL_SIZE);
+    private boolean indexed;
+    // Line or circle changing shape without index updates; see beginReshape.
+    private Object reshaping;
 
     public LineCanvas() {
         lines = new ArrayList<>();
         circles = new ArrayList<>();
         fills = new ArrayList<>();
+        polygons = new ArrayList<>();
+    }
+
+    // Limits the hit-testing index to the canvas and a cell around it, so hit tests at the edge stay
+    // inside; objects reaching far beyond it cost the index no more than the canvas they cover.
+    public void setIndexArea(int width, int height) {
+        Rectangle area = new Rectangle(-INDEX_CELL_SIZE, -INDEX_CELL_SIZE, width + 2 * INDEX_CELL_SIZE, height + 2 * INDEX_CELL_SIZE);
+        lineIndex.setLimits(area);
+        circleIndex.setLimits(area);
     }
 
     public void addLine(Line line) {
         lines.add(line);
+        if (indexed) {
+            lineIndex.add(line, line.getBounds());
+        }
+        invalidateFills(line.getBounds());
+    }
+
+    // Returns the position the line had in drawing order, or -1 if it was not on the canvas.
+    public int removeLine(Line line) {
+        int index = lines.indexOf(line);
+        if (index < 0) return -1;
+        lines.remove(index);
+        if (indexed) {
+            lineIndex.remove(line);
+        }
+        invalidateFills(line.getBounds());
+        return index;
+    }
+
+    // Puts a removed line back at its old position in drawing order.
+    public void insertLine(int index, Line line) {
+        lines.add(index, line);
+        if (index < lines.size() - 1) {
+            dropIndex();
+        } else if (indexed) {
+            lineIndex.add(line, line.getBounds());
+        }
+        invalidateFills(line.getBounds());
+    }
+
+    // Must be called after a line's points or width change so the index and the fills next to it follow;
+    // before is the area the line covered until then.
+    public void updateLine(Line line, Rectangle before) {
+        if (line == reshaping) reshaping = null;
+        if (indexed) {
+            lineIndex.update(line, line.getBounds());
+        }
+        invalidateFills(before);
+        invalidateFills(line.getBounds());
     }
 
     public List<Line> getLines() {
-        return lines;
+        return Collections.unmodifiableList(lines);
+    }
+
+    public List<Line> findLinesNear(int x, int y, int radius) {
+        buildIndex();
+        return lineIndex.query(x, y, radius);
+    }
+
+    public List<Line> findLinesIn(Rectangle area) {
+        buildIndex();
+        return lineIndex.query(area);
+    }
+
+    // Adds the lines whose bounds intersect the area to out, in drawing order, without allocating.
+    public void findLinesIn(Rectangle area, List<Line> out) {
+        buildIndex();
+        lineIndex.query(area, out);
     }
 
     public void addCircle(Circle circle) {
         circles.add(circle);
+        if (indexed) {
+            circleIndex.add(circle, circle.getBounds());
+        }
+        invalidateFills(circle.getBounds());
+    }
+
+    // Returns the position the circle had in drawing order, or -1 if it was not on the canvas.
+    public int removeCircle(Circle circle) {
+        int index = circles.indexOf(circle);
+        if (index < 0) return -1;
+        circles.remove(index);
+        if (indexed) {
+            circleIndex.remove(circle);
+        }
+        invalidateFills(circle.getBounds());
+        return index;
+    }
+
+    // Puts a removed circle back at its old position in drawing order.
+    public void insertCircle(int index, Circle circle) {
+        circles.add(index, circle);
+        if (index < circles.size() - 1) {
+            dropIndex();
+        } else if (indexed) {
+            circleIndex.add(circle, circle.getBounds());
+        }
+        invalidateFills(circle.getBounds());
+    }
+
+    // Must be called after a circle's center, radius or width change, like updateLine.
+    public void updateCircle(Circle circle, Rectangle before) {
+        if (circle == reshaping) reshaping = null;
+        if (indexed) {
+            circleIndex.update(circle, circle.getBounds());
+        }
+        invalidateFills(before);
+        invalidateFills(circle.getBounds());
     }
 
     public List<Circle> getCircles() {
-        return circles;
+        return Collections.unmodifiableList(circles);
+    }
+
+    public List<Circle> findCirclesNear(int x, int y, int radius) {
+        buildIndex();
+        return circleIndex.query(x, y, radius);
+    }
+
+    public List<Circle> findCirclesIn(Rectangle area) {
+        buildIndex();
+        return circleIndex.query(area);
+    }
+
+    public void findCirclesIn(Rectangle area, List<Circle> out) {
+        buildIndex();
+        circleIndex.query(area, out);
+    }
+
+    // The line or circle is about to change shape on every drag step without updateLine/updateCircle.
+    // Until then, or until endReshape, queries return it wherever they look, so callers must test its
+    // current bounds themselves.
+    public void beginReshape(Object object) {
+        endReshape();
+        reshaping = object;
+        if (indexed) {
+            if (object instanceof Line) lineIndex.update((Line) object, EVERYWHERE);
+            if (object instanceof Circle) circleIndex.update((Circle) object, EVERYWHERE);
+        }
+    }
+
+    // Puts the reshaped object back under its current bounds.
+    public void endReshape() {
+        Object object = reshaping;
+        reshaping = null;
+        if (!indexed) return;
+        if (object instanceof Line) lineIndex.update((Line) object, ((Line) object).getBounds());
+        if (object instanceof Circle) circleIndex.update((Circle) object, ((Circle) object).getBounds());
     }
 
     public void addFill(Fill fill) {
         fills.add(fill);
     }
 
+    public void removeFill(Fill fill) {
+        fills.remove(fill);
+    }
+
     public List<Fill> getFills() {
-        return fills;
+        return Collections.unmodifiableList(fills);
+    }
+
+    // Filled polygons are drawn first, under the outlines. They are areas, not outlines, so they never
+    // bound a seeded fill.
+    public void addPolygon(Polygon polygon) {
+        polygons.add(polygon);
+    }
+
+    // Returns the position the polygon had in drawing order, or -1 if it was not on the canvas.
+    public int removePolygon(Polygon polygon) {
+        int index = polygons.indexOf(polygon);
+        if (index >= 0) polygons.remove(index);
+        return index;
+    }
+
+    public void insertPolygon(int index, Polygon polygon) {
+        polygons.add(index, polygon);
+    }
+
+    public List<Polygon> getPolygons() {
+        return Collections.unmodifiableList(polygons);
+    }
+
+    // Seeded fills bordering the changed area have to be recomputed. Color changes don't matter: fill
+    // regions depend only on which pixels the outlines cover.
+    private void invalidateFills(Rectangle changed) {
+        for (Fill fill : fills) {
+            fill.invalidate(changed);
+        }
+    }
+
+    // The outlines are drawn differently without having moved, e.g. after a dash pattern changed.
+    public void invalidateAllFills() {
+        invalidateFills(EVERYWHERE);
+    }
+
+    public boolean hasStaleFills() {
+        for (Fill fill : fills) {
+            if (fill.isStale()) return true;
+        }
+        return false;
+    }
+
+    public void clear() {
+        lines.clear();
+        circles.clear();
+        fills.clear();
+        polygons.clear();
+        lineIndex.clear();
+        circleIndex.clear();
+        indexed = false;
+        reshaping = null;
+    }
+
+    // The grid orders query results by when objects were added to it, so an object put back in the middle
+    // of the drawing order would come last. The next query rebuilds the index in drawing order instead.
+    private void dropIndex() {
+        if (!indexed) return;
+        lineIndex.clear();
+        circleIndex.clear();
+        indexed = false;
+    }
+
+    private void buildIndex() {
+        if (indexed) return;
+        for (Line line : lines) {
+            lineIndex.add(line, line == reshaping ? EVERYWHERE : line.getBounds());
+        }
+        for (Circle circle : circles) {
+            circleIndex.add(circle, circle == reshaping ? EVERYWHERE : circle.getBounds());
+        }
+        indexed = true;
     }
 }
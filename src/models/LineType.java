@@ -1,7 +1,25 @@
 package models;
 
 public enum LineType {
-    SOLID,
-    DOTTED,
-    DASHED
+    SOLID(StrokePattern.SOLID),
+    DOTTED(new StrokePattern(new int[]{0, 4}, 0)),
+    DASHED(new StrokePattern(new int[]{10, 10}, 0));
+
+    private final StrokePattern defaultPattern;
+    // Shared by all rasterizers and replaced as a whole, so a frame being rendered sees the old or the new one.
+    private volatile StrokePattern pattern;
+
+    LineType(StrokePattern pattern) {
+        this.defaultPattern = pattern;
+        this.pattern = pattern;
+    }
+
+    public StrokePattern getPattern() {
+        return pattern;
+    }
+
+    // Null goes back to the built-in pattern.
+    public void setPattern(StrokePattern pattern) {
+        this.pattern = pattern != null ? pattern : defaultPattern;
+    }
 }
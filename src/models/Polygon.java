@@ -0,0 +1,85 @@
+package models;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * Filled polygon area. The vertices are fixed once created; the covered pixels are computed from them
+ * (see rasterizers.PolygonFiller) and kept as packed (y, x0, x1) spans, like a Fill.
+ */
+public class Polygon {
+    private final int[] xs, ys;
+    private final int color;
+    private final FillRule rule;
+    private final Rectangle bounds;
+    // Null until first drawn; they cover a spansWidth x spansHeight raster.
+    private int[] spans;
+    private int spansWidth, spansHeight;
+
+    public Polygon(int[] xs, int[] ys, int color, FillRule rule) {
+        if (xs.length != ys.length) throw new IllegalArgumentException("vertex arrays differ in length");
+        this.xs = xs.clone();
+        this.ys = ys.clone();
+        this.color = color;
+        this.rule = rule;
+        this.bounds = computeBounds(this.xs, this.ys);
+    }
+
+    public Polygon(List<Point> points, int color, FillRule rule) {
+        this(points.stream().mapToInt(Point::getX).toArray(), points.stream().mapToInt(Point::getY).toArray(), color, rule);
+    }
+
+    private static Rectangle computeBounds(int[] xs, int[] ys) {
+        if (xs.length == 0) return new Rectangle();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    public int getVertexCount() {
+        return xs.length;
+    }
+
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public FillRule getRule() {
+        return rule;
+    }
+
+    // Contains every pixel the polygon can cover.
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    public Rectangle getBounds(Rectangle out) {
+        out.setBounds(bounds);
+        return out;
+    }
+
+    // The spans kept for a raster of this size, or null.
+    public synchronized int[] getSpans(int width, int height) {
+        return width == spansWidth && height == spansHeight ? spans : null;
+    }
+
+    public synchronized void setSpans(int[] spans, int width, int height) {
+        this.spans = spans;
+        this.spansWidth = width;
+        this.spansHeight = height;
+    }
+}
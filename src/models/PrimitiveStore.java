@@ -0,0 +1,197 @@
+package models;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Struct-of-arrays alternative to LineCanvas for large scenes: every line and circle is a row of parallel
+ * int columns addressed by an integer handle, with no per-shape objects. Colors are packed ARGB (0 means the
+ * rasterizer's current color) and style packs width &lt;&lt; 2 | LineType ordinal. Removed rows keep their
+ * handle with style 0 and are skipped, so handles stay stable and drawing order is preserved.
+ */
+public class PrimitiveStore {
+
+    private static final LineType[] LINE_TYPES = LineType.values();
+
+    private int[] lineX1 = new int[16], lineY1 = new int[16], lineX2 = new int[16], lineY2 = new int[16];
+    private int[] lineColor = new int[16], lineStyle = new int[16];
+    private int lineCount;
+
+    private int[] circleX = new int[16], circleY = new int[16], circleRadius = new int[16];
+    private int[] circleColor = new int[16], circleStyle = new int[16];
+    private int circleCount;
+
+    private final List<Fill> fills = new ArrayList<>();
+    private final List<Polygon> polygons = new ArrayList<>();
+
+    public static PrimitiveStore of(LineCanvas canvas) {
+        PrimitiveStore store = new PrimitiveStore();
+        store.ensureLineCapacity(canvas.getLines().size());
+        store.ensureCircleCapacity(canvas.getCircles().size());
+        for (Line line : canvas.getLines()) {
+            store.addLine(line.getP1().getX(), line.getP1().getY(), line.getP2().getX(), line.getP2().getY(),
+                    argb(line.getColor()), line.getLineType(), line.getLineWidth());
+        }
+        for (Circle circle : canvas.getCircles()) {
+            store.addCircle(circle.getCenter().getX(), circle.getCenter().getY(), circle.getRadius(),
+                    argb(circle.getColor()), circle.getLineType(), circle.getLineWidth());
+        }
+        for (Fill fill : canvas.getFills()) {
+            store.addFill(fill);
+        }
+        for (Polygon polygon : canvas.getPolygons()) {
+            store.addPolygon(polygon);
+        }
+        return store;
+    }
+
+    public int addLine(int x1, int y1, int x2, int y2, int argb, LineType lineType, int lineWidth) {
+        ensureLineCapacity(lineCount + 1);
+        int h = lineCount++;
+        lineX1[h] = x1;
+        lineY1[h] = y1;
+        lineX2[h] = x2;
+        lineY2[h] = y2;
+        lineColor[h] = argb;
+        lineStyle[h] = style(lineWidth, lineType);
+        return h;
+    }
+
+    public int addCircle(int cx, int cy, int radius, int argb, LineType lineType, int lineWidth) {
+        ensureCircleCapacity(circleCount + 1);
+        int h = circleCount++;
+        circleX[h] = cx;
+        circleY[h] = cy;
+        circleRadius[h] = radius;
+        circleColor[h] = argb;
+        circleStyle[h] = style(lineWidth, lineType);
+        return h;
+    }
+
+    public void addFill(Fill fill) {
+        fills.add(fill);
+    }
+
+    public void addPolygon(Polygon polygon) {
+        polygons.add(polygon);
+    }
+
+    public void moveLine(int handle, int x1, int y1, int x2, int y2) {
+        lineX1[handle] = x1;
+        lineY1[handle] = y1;
+        lineX2[handle] = x2;
+        lineY2[handle] = y2;
+    }
+
+    public void moveCircle(int handle, int cx, int cy, int radius) {
+        circleX[handle] = cx;
+        circleY[handle] = cy;
+        circleRadius[handle] = radius;
+    }
+
+    public void removeLine(int handle) {
+        lineStyle[handle] = 0;
+    }
+
+    public void removeCircle(int handle) {
+        circleStyle[handle] = 0;
+    }
+
+    // Handles run from 0 to count - 1, removed ones included.
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getCircleCount() {
+        return circleCount;
+    }
+
+    public boolean isLineRemoved(int handle) {
+        return lineStyle[handle] == 0;
+    }
+
+    public boolean isCircleRemoved(int handle) {
+        return circleStyle[handle] == 0;
+    }
+
+    // Raw columns for tight loops; valid up to the matching count, and replaced when the store grows.
+    public int[] getLineX1() { return lineX1; }
+    public int[] getLineY1() { return lineY1; }
+    public int[] getLineX2() { return lineX2; }
+    public int[] getLineY2() { return lineY2; }
+    public int[] getLineColors() { return lineColor; }
+    public int[] getLineStyles() { return lineStyle; }
+    public int[] getCircleX() { return circleX; }
+    public int[] getCircleY() { return circleY; }
+    public int[] getCircleRadii() { return circleRadius; }
+    public int[] getCircleColors() { return circleColor; }
+    public int[] getCircleStyles() { return circleStyle; }
+
+    public List<Fill> getFills() {
+        return Collections.unmodifiableList(fills);
+    }
+
+    public List<Polygon> getPolygons() {
+        return Collections.unmodifiableList(polygons);
+    }
+
+    // Materializes a row as a Line; changes to the returned object are not written back.
+    public Line getLine(int handle) {
+        return new Line(new Point(lineX1[handle], lineY1[handle]), new Point(lineX2[handle], lineY2[handle]),
+                color(lineColor[handle]), lineType(lineStyle[handle]), lineWidth(lineStyle[handle]));
+    }
+
+    public Circle getCircle(int handle) {
+        return new Circle(new Point(circleX[handle], circleY[handle]), circleRadius[handle],
+                lineType(circleStyle[handle]), color(circleColor[handle]), lineWidth(circleStyle[handle]));
+    }
+
+    // Bytes held by the line and circle columns, including unused capacity; fills are counted separately.
+    public long getMemoryBytes() {
+        return 4L * (6L * lineX1.length + 5L * circleX.length);
+    }
+
+    public static int style(int lineWidth, LineType lineType) {
+        return lineWidth << 2 | (lineType != null ? lineType : LineType.SOLID).ordinal();
+    }
+
+    public static int lineWidth(int style) {
+        return style >>> 2;
+    }
+
+    public static LineType lineType(int style) {
+        return LINE_TYPES[style & 3];
+    }
+
+    private static int argb(Color color) {
+        return color != null ? color.getRGB() : 0;
+    }
+
+    private static Color color(int argb) {
+        return argb != 0 ? new Color(argb, true) : null;
+    }
+
+    public void ensureLineCapacity(int capacity) {
+        if (capacity <= lineX1.length) return;
+        int size = Math.max(capacity, lineX1.length * 2);
+        lineX1 = Arrays.copyOf(lineX1, size);
+        lineY1 = Arrays.copyOf(lineY1, size);
+        lineX2 = Arrays.copyOf(lineX2, size);
+        lineY2 = Arrays.copyOf(lineY2, size);
+        lineColor = Arrays.copyOf(lineColor, size);
+        lineStyle = Arrays.copyOf(lineStyle, size);
+    }
+
+    public void ensureCircleCapacity(int capacity) {
+        if (capacity <= circleX.length) return;
+        int size = Math.max(capacity, circleX.length * 2);
+        circleX = Arrays.copyOf(circleX, size);
+        circleY = Arrays.copyOf(circleY, size);
+        circleRadius = Arrays.copyOf(circleRadius, size);
+        circleColor = Arrays.copyOf(circleColor, size);
+        circleStyle = Arrays.copyOf(circleStyle, size);
+    }
+}
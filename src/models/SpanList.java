@@ -0,0 +1,59 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of horizontal spans packed as (y, x0, x1) int triples, x1 inclusive.
+ */
+public class SpanList {
+
+    private int[] data;
+    private int size;
+
+    public SpanList() {
+        this(16);
+    }
+
+    public SpanList(int initialCapacity) {
+        data = new int[Math.max(initialCapacity, 1) * 3];
+    }
+
+    public void add(int y, int x0, int x1) {
+        if (size * 3 == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        int i = size * 3;
+        data[i] = y;
+        data[i + 1] = x0;
+        data[i + 2] = x1;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getY(int index) {
+        return data[index * 3];
+    }
+
+    public int getX0(int index) {
+        return data[index * 3 + 1];
+    }
+
+    public int getX1(int index) {
+        return data[index * 3 + 2];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(data, size * 3);
+    }
+}
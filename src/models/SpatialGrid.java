@@ -0,0 +1,297 @@
+package models;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over object bounding boxes. Each object is registered in every cell its bounds touch;
+ * queries return candidates in insertion order so callers keep "first object wins" semantics.
+ * With limits set, only the part of the bounds inside them is registered, and objects that would still
+ * need too many cells are kept in a list every query checks.
+ */
+public class SpatialGrid<T> {
+
+    private static class Entry<T> {
+        final T object;
+        final long sequence;
+        Rectangle bounds;
+        // Number of the last query that found this entry.
+        long seen;
+
+        Entry(T object, long sequence, Rectangle bounds) {
+            this.object = object;
+            this.sequence = sequence;
+            this.bounds = bounds;
+        }
+    }
+
+    // An object needing more cells than this is not put into cells at all.
+    private static final long MAX_CELLS = 1024;
+
+    private final int cellSize;
+    private final CellMap<List<Entry<T>>> cells = new CellMap<>();
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private final List<Entry<T>> oversized = new ArrayList<>();
+    private Rectangle limits;
+    private long nextSequence;
+    // Scratch for queries, reused so they do not allocate.
+    @SuppressWarnings("unchecked")
+    private Entry<T>[] found = (Entry<T>[]) new Entry[64];
+    private long queries;
+
+    public SpatialGrid(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void add(T object, Rectangle bounds) {
+        Entry<T> entry = new Entry<>(object, nextSequence++, bounds);
+        entries.put(object, entry);
+        link(entry);
+    }
+
+    public void remove(T object) {
+        Entry<T> entry = entries.remove(object);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    // Re-registers an object whose bounds changed; it keeps its original insertion order.
+    public void update(T object, Rectangle bounds) {
+        Entry<T> entry = entries.get(object);
+        if (entry == null) return;
+        unlink(entry);
+        entry.bounds = bounds;
+        link(entry);
+    }
+
+    public void clear() {
+        cells.clear();
+        entries.clear();
+        oversized.clear();
+    }
+
+    // Area the cells cover, e.g. the canvas; null covers everything.
+    public void setLimits(Rectangle limits) {
+        this.limits = limits == null ? null : new Rectangle(limits);
+        cells.clear();
+        oversized.clear();
+        for (Entry<T> entry : entries.values()) {
+            link(entry);
+        }
+    }
+
+    // Objects whose bounds intersect the square of the given radius around (x, y), in insertion order.
+    public List<T> query(int x, int y, int radius) {
+        return query(new Rectangle(x - radius, y - radius, 2 * radius + 1, 2 * radius + 1));
+    }
+
+    // Objects whose bounds intersect the area, in insertion order.
+    public List<T> query(Rectangle area) {
+        List<T> result = new ArrayList<>();
+        query(area, result);
+        return result;
+    }
+
+    // Adds the objects whose bounds intersect the area to out, in insertion order.
+    public void query(Rectangle area, List<T> out) {
+        long stamp = ++queries;
+        int count = 0;
+        if ((limits != null && !limits.contains(area)) || cellCount(area) > entries.size()) {
+            // Cells don't know about anything outside the limits, and a huge area is cheaper to check
+            // object by object.
+            for (Entry<T> entry : entries.values()) {
+                count = collect(entry, area, stamp, count);
+            }
+        } else {
+            for (int cy = cell(area.y); cy <= cell(area.y + area.height - 1); cy++) {
+                for (int cx = cell(area.x); cx <= cell(area.x + area.width - 1); cx++) {
+                    List<Entry<T>> bucket = cells.get(key(cx, cy));
+                    if (bucket == null) continue;
+                    for (int i = 0; i < bucket.size(); i++) {
+                        count = collect(bucket.get(i), area, stamp, count);
+                    }
+                }
+            }
+            for (int i = 0; i < oversized.size(); i++) {
+                count = collect(oversized.get(i), area, stamp, count);
+            }
+        }
+        sortBySequence(found, count);
+        for (int i = 0; i < count; i++) {
+            out.add(found[i].object);
+            found[i] = null;
+        }
+    }
+
+    // An object spanning several queried cells is met once per cell; the stamp keeps only the first.
+    private int collect(Entry<T> entry, Rectangle area, long stamp, int count) {
+        if (entry.seen == stamp || !entry.bounds.intersects(area)) return count;
+        entry.seen = stamp;
+        if (count == found.length) {
+            found = Arrays.copyOf(found, 2 * count);
+        }
+        found[count] = entry;
+        return count + 1;
+    }
+
+    // Heapsort in place, so sorting needs no buffer.
+    private static <T> void sortBySequence(Entry<T>[] a, int n) {
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(a, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            Entry<T> top = a[0];
+            a[0] = a[end];
+            a[end] = top;
+            siftDown(a, 0, end);
+        }
+    }
+
+    private static <T> void siftDown(Entry<T>[] a, int i, int n) {
+        Entry<T> entry = a[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) break;
+            if (child + 1 < n && a[child + 1].sequence > a[child].sequence) child++;
+            if (a[child].sequence <= entry.sequence) break;
+            a[i] = a[child];
+            i = child;
+        }
+        a[i] = entry;
+    }
+
+    private void link(Entry<T> entry) {
+        Rectangle b = indexed(entry.bounds);
+        if (b == null) {
+            oversized.add(entry);
+            return;
+        }
+        for (int cy = cell(b.y); cy <= cell(b.y + b.height - 1); cy++) {
+            for (int cx = cell(b.x); cx <= cell(b.x + b.width - 1); cx++) {
+                long key = key(cx, cy);
+                List<Entry<T>> bucket = cells.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    cells.put(key, bucket);
+                }
+                bucket.add(entry);
+            }
+        }
+    }
+
+    private void unlink(Entry<T> entry) {
+        Rectangle b = indexed(entry.bounds);
+        if (b == null) {
+            oversized.remove(entry);
+            return;
+        }
+        for (int cy = cell(b.y); cy <= cell(b.y + b.height - 1); cy++) {
+            for (int cx = cell(b.x); cx <= cell(b.x + b.width - 1); cx++) {
+                long key = key(cx, cy);
+                List<Entry<T>> bucket = cells.get(key);
+                if (bucket == null) continue;
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    // The part of the bounds that goes into cells, or null if the object belongs in oversized.
+    private Rectangle indexed(Rectangle bounds) {
+        Rectangle b = limits == null ? bounds : bounds.intersection(limits);
+        return b.isEmpty() || cellCount(b) > MAX_CELLS ? null : b;
+    }
+
+    private long cellCount(Rectangle area) {
+        long columns = (long) cell(area.x + area.width - 1) - cell(area.x) + 1;
+        long rows = (long) cell(area.y + area.height - 1) - cell(area.y) + 1;
+        return columns * rows;
+    }
+
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    // Open-addressing map from cell keys to buckets; unlike a HashMap<Long, ...> its lookups don't box the key.
+    private static class CellMap<V> {
+        private long[] keys = new long[64];
+        private Object[] values = new Object[64];
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        V get(long key) {
+            for (int i = slot(key, keys.length); values[i] != null; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) return (V) values[i];
+            }
+            return null;
+        }
+
+        void put(long key, V value) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int i = slot(key, keys.length);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            if (values[i] == null) size++;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, keys.length);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) return;
+            size--;
+            // Shift later keys of the probe run back into the hole so lookups still reach them.
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], keys.length);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    i = j;
+                }
+            }
+            values[i] = null;
+        }
+
+        void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void grow() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[2 * oldKeys.length];
+            values = new Object[2 * oldValues.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], (V) oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int length) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & (length - 1);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Dash array for stroking: alternating on and off lengths in multiples of the line width, starting with an
+ * on length, and an offset into the pattern in the same unit. An on length of 0 is a dot one step long.
+ * An odd number of lengths is repeated once, as in SVG. Rasterizers walk the {@link Runs} compiled for a
+ * line width instead of testing every step.
+ */
+public class StrokePattern {
+
+    public static final StrokePattern SOLID = new StrokePattern(new int[0], 0);
+
+    // Compiled run tables for the usual widths; wider lines compile on every use.
+    private static final int CACHED_WIDTHS = 64;
+
+    private final int[] dashes;
+    private final int offset;
+    private final Runs[] compiled = new Runs[CACHED_WIDTHS];
+
+    public StrokePattern(int[] dashes, int offset) {
+        long sum = 0;
+        for (int dash : dashes) {
+            if (dash < 0) throw new IllegalArgumentException("dash lengths must not be negative");
+            sum += dash;
+        }
+        if (dashes.length > 0 && sum == 0) throw new IllegalArgumentException("dash pattern has zero length");
+        // Odd arrays are repeated, so their period is twice the sum.
+        if (dashes.length % 2 != 0) sum *= 2;
+        if (sum > Integer.MAX_VALUE) throw new IllegalArgumentException("dash pattern is too long");
+        this.dashes = dashes.length % 2 == 0 ? dashes.clone() : repeat(dashes);
+        this.offset = offset;
+    }
+
+    private static int[] repeat(int[] dashes) {
+        int[] twice = Arrays.copyOf(dashes, 2 * dashes.length);
+        System.arraycopy(dashes, 0, twice, dashes.length, dashes.length);
+        return twice;
+    }
+
+    public boolean isSolid() {
+        return dashes.length == 0;
+    }
+
+    public int[] getDashes() {
+        return dashes.clone();
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    // Run table for the given line width, or null when the pattern draws every step.
+    public Runs compile(int lineWidth) {
+        if (isSolid()) return null;
+        if (lineWidth < CACHED_WIDTHS) {
+            // Runs are immutable, so a race only compiles the same table twice.
+            Runs runs = compiled[lineWidth];
+            if (runs == null) {
+                runs = new Runs(dashes, offset, lineWidth);
+                compiled[lineWidth] = runs;
+            }
+            return runs;
+        }
+        return new Runs(dashes, offset, lineWidth);
+    }
+
+    @Override
+    public String toString() {
+        if (isSolid()) return "solid";
+        StringBuilder sb = new StringBuilder();
+        for (int dash : dashes) {
+            sb.append(dash).append(' ');
+        }
+        return sb.append("offset=").append(offset).toString();
+    }
+
+    /**
+     * A pattern scaled to one line width, as runs of steps along the line. Even runs are drawn, odd runs
+     * are gaps; runs never have zero length. Step 0 of a line is at the pattern offset.
+     */
+    public static final class Runs {
+        // Exclusive end of every run within one period.
+        private final int[] ends;
+        private final int period;
+        private final int shift;
+
+        // Lengths are scaled in long and the period is capped at Integer.MAX_VALUE steps; runs past the cap
+        // are dropped, as no line is that long.
+        Runs(int[] dashes, int offset, int lineWidth) {
+            long[] lengths = new long[dashes.length];
+            int count = 0;
+            for (int i = 0; i < dashes.length; i++) {
+                boolean on = i % 2 == 0;
+                long length = (long) dashes[i] * lineWidth;
+                if (on && length == 0) {
+                    length = 1;
+                } else if (!on && dashes[i - 1] == 0) {
+                    // A dot takes one step from the gap after it, so the period stays the same.
+                    length--;
+                }
+                if (length <= 0) continue;
+                if (count % 2 == (on ? 0 : 1)) {
+                    lengths[count++] = length;
+                } else {
+                    // The gap before was empty, so this dash continues the previous one.
+                    lengths[count - 1] += length;
+                }
+            }
+            int[] ends = new int[count];
+            long end = 0;
+            int kept = 0;
+            while (kept < count && end < Integer.MAX_VALUE) {
+                end = Math.min(end + lengths[kept], Integer.MAX_VALUE);
+                ends[kept++] = (int) end;
+            }
+            this.ends = kept < count ? Arrays.copyOf(ends, kept) : ends;
+            period = (int) end;
+            shift = Math.floorMod((long) offset * lineWidth, period);
+        }
+
+        public int getRunCount() {
+            return ends.length;
+        }
+
+        public int getPeriod() {
+            return period;
+        }
+
+        public boolean isOn(int run) {
+            return (run & 1) == 0;
+        }
+
+        public int length(int run) {
+            return run == 0 ? ends[0] : ends[run] - ends[run - 1];
+        }
+
+        public int next(int run) {
+            return run + 1 == ends.length ? 0 : run + 1;
+        }
+
+        // Position of step index within the period.
+        public int position(long index) {
+            return (int) Math.floorMod(index + shift, (long) period);
+        }
+
+        // Run covering a position within the period.
+        public int runAt(int position) {
+            int run = 0;
+            while (ends[run] <= position) run++;
+            return run;
+        }
+
+        public int runStart(int run) {
+            return run == 0 ? 0 : ends[run - 1];
+        }
+
+        public boolean isOnAt(long index) {
+            return isOn(runAt(position(index)));
+        }
+    }
+}
@@ -1,15 +1,48 @@
 package modes;
 
 import app.App;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 
 public abstract class BaseMode implements Mode {
     protected App app;
+    // Area covered by the last preview frame, so the next frame only redraws what changed; null if none.
+    protected Rectangle previewBounds;
+    // Storage behind previewBounds and the damaged area, reused by every frame of a drag.
+    private final Rectangle lastPreview = new Rectangle();
+    private final Rectangle damage = new Rectangle();
 
     public BaseMode(App app) {
         this.app = app;
     }
 
+    // Redraws the union of the previous and the new preview area on the overlay layer.
+    // Bounds is copied, so callers may pass a rectangle they reuse.
+    protected void redrawPreview(Rectangle bounds, Runnable preview) {
+        damage.setBounds(bounds);
+        if (previewBounds != null) {
+            damage.add(previewBounds);
+        }
+        app.redrawOverlay(damage, preview);
+        setPreviewBounds(bounds);
+    }
+
+    protected void setPreviewBounds(Rectangle bounds) {
+        lastPreview.setBounds(bounds);
+        previewBounds = lastPreview;
+    }
+
+    // Ends a preview: erases it from the overlay and updates the cached scene where the committed object landed.
+    protected void commitPreview(Rectangle committedBounds) {
+        if (previewBounds != null) {
+            app.redrawOverlay(previewBounds, null);
+        }
+        if (committedBounds != null) {
+            app.redrawRegion(committedBounds);
+        }
+        previewBounds = null;
+    }
+
     @Override
     public void mousePressed(MouseEvent e) {}
 
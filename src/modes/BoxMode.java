@@ -1,15 +1,25 @@
 package modes;
 
 import app.App;
+import models.CanvasEdit;
 import models.Line;
 import models.LineType;
 import models.Point;
+import rasterizers.Rasterizer;
 import utils.Utils;
 
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
 
 public class BoxMode extends BaseMode {
 
+    // Drag state reused by every preview frame; the preview edges are drawn from coordinates, without Lines.
+    private final Point corner = new Point(0, 0);
+    private final Rectangle bounds = new Rectangle();
+    private final Runnable preview = this::drawBox;
+
     public BoxMode(App app) {
         super(app);
     }
@@ -27,6 +37,7 @@ public class BoxMode extends BaseMode {
     @Override
     public void mousePressed(MouseEvent e) {
         app.setPPomocny(new Point(e.getX(), e.getY()));
+        previewBounds = null;
     }
 
     @Override
@@ -38,54 +49,65 @@ public class BoxMode extends BaseMode {
             if (e.isShiftDown() || app.isSnapMode()) {
                 p2 = Utils.snapPoint(p1, p2, true);
             }
-            addBoxToCanvas(p1, p2);
+            CanvasEdit box = addBoxToCanvas(p1, p2);
+            commitPreview(getBoxBounds(p1, p2));
+            app.record(box);
         }
-
-        app.redrawCanvas();
-        app.getCanvasRasterizer().rasterize(app.getLineCanvas());
-        app.getPanel().repaint();
     }
 
     @Override
     public void mouseDragged(MouseEvent e) {
         Point p1 = app.getPPomocny();
-        Point p2 = new Point(e.getX(), e.getY());
-
-        if (p1 != null) {
-            if (e.isShiftDown() || app.isSnapMode()) {
-                p2 = Utils.snapPoint(p1, p2, true);
-            }
+        if (p1 == null) return;
 
-            app.redrawCanvas();
-            drawBox(p1, p2);
-            app.getPanel().repaint();
+        corner.setX(e.getX());
+        corner.setY(e.getY());
+        if (e.isShiftDown() || app.isSnapMode()) {
+            Utils.snapPoint(p1, corner, true, corner);
         }
+        redrawPreview(getBoxBounds(p1, corner), preview);
     }
 
-    private void drawBox(Point p1, Point p2) {
-        Point pTopRight = new Point(p2.getX(), p1.getY());
-        Point pBottomLeft = new Point(p1.getX(), p2.getY());
+    private void drawBox() {
+        int x1 = app.getPPomocny().getX(), y1 = app.getPPomocny().getY();
+        int x2 = corner.getX(), y2 = corner.getY();
         LineType lt = getLineType();
         int width = app.getLineWidth();
-        java.awt.Color color = app.getRasterizer().getColor();
+        int color = app.getRasterizer().getColor().getRGB();
+        Rasterizer overlay = app.getOverlayRasterizer();
 
-        app.getRasterizer().rasterize(new Line(p1, pTopRight, color, lt, width));
-        app.getRasterizer().rasterize(new Line(pTopRight, p2, color, lt, width));
-        app.getRasterizer().rasterize(new Line(p2, pBottomLeft, color, lt, width));
-        app.getRasterizer().rasterize(new Line(pBottomLeft, p1, color, lt, width));
+        overlay.rasterizeLine(x1, y1, x2, y1, color, lt, width);
+        overlay.rasterizeLine(x2, y1, x2, y2, color, lt, width);
+        overlay.rasterizeLine(x2, y2, x1, y2, color, lt, width);
+        overlay.rasterizeLine(x1, y2, x1, y1, color, lt, width);
     }
 
-    private void addBoxToCanvas(Point p1, Point p2) {
-        Point pTopRight = new Point(p2.getX(), p1.getY());
-        Point pBottomLeft = new Point(p1.getX(), p2.getY());
+    // The box's edges stay within the bounds of a line between opposite corners.
+    private Rectangle getBoxBounds(Point p1, Point p2) {
+        return Line.getBounds(p1.getX(), p1.getY(), p2.getX(), p2.getY(), app.getLineWidth(), bounds);
+    }
+
+    private CanvasEdit addBoxToCanvas(Point p1, Point p2) {
+        int x1 = p1.getX(), y1 = p1.getY();
+        int x2 = p2.getX(), y2 = p2.getY();
         LineType lt = getLineType();
         int width = app.getLineWidth();
         java.awt.Color color = app.getRasterizer().getColor();
 
-        app.getLineCanvas().addLine(new Line(p1, pTopRight, color, lt, width));
-        app.getLineCanvas().addLine(new Line(pTopRight, p2, color, lt, width));
-        app.getLineCanvas().addLine(new Line(p2, pBottomLeft, color, lt, width));
-        app.getLineCanvas().addLine(new Line(pBottomLeft, p1, color, lt, width));
+        // Every edge gets its own corner points: Edit mode moves a line's points in place, and a shared
+        // corner would drag the neighbouring edge along without redrawing or reindexing it.
+        Line[] edges = {
+                new Line(new Point(x1, y1), new Point(x2, y1), color, lt, width),
+                new Line(new Point(x2, y1), new Point(x2, y2), color, lt, width),
+                new Line(new Point(x2, y2), new Point(x1, y2), color, lt, width),
+                new Line(new Point(x1, y2), new Point(x1, y1), color, lt, width)
+        };
+        List<CanvasEdit> edits = new ArrayList<>();
+        for (Line edge : edges) {
+            app.getLineCanvas().addLine(edge);
+            edits.add(CanvasEdit.addLine(edge));
+        }
+        return CanvasEdit.group(edits);
     }
 
     @Override
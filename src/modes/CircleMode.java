@@ -1,13 +1,21 @@
 package modes;
 
 import app.App;
+import models.CanvasEdit;
 import models.Circle;
 import models.LineType;
 import models.Point;
+
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 
 public class CircleMode extends BaseMode {
 
+    // Drag state reused by every preview frame; the preview is drawn from coordinates, without a Circle.
+    private int previewRadius;
+    private final Rectangle bounds = new Rectangle();
+    private final Runnable preview = this::drawPreview;
+
     public CircleMode(App app) {
         super(app);
     }
@@ -25,6 +33,7 @@ public class CircleMode extends BaseMode {
     @Override
     public void mousePressed(MouseEvent e) {
         app.setPPomocny(new Point(e.getX(), e.getY()));
+        previewBounds = null;
     }
 
     @Override
@@ -38,9 +47,9 @@ public class CircleMode extends BaseMode {
         Circle circle = new Circle(center, (int) radius, getLineType(), app.getRasterizer().getColor(), app.getLineWidth());
         
         app.getLineCanvas().addCircle(circle);
-        
-        app.redrawCanvas();
-        app.getPanel().repaint();
+
+        commitPreview(circle.getBounds());
+        app.record(CanvasEdit.addCircle(circle));
     }
 
     @Override
@@ -48,13 +57,16 @@ public class CircleMode extends BaseMode {
         if (app.getPPomocny() == null) return;
 
         Point center = app.getPPomocny();
-        Point edge = new Point(e.getX(), e.getY());
-        double radius = Math.sqrt(Math.pow(edge.getX() - center.getX(), 2) + Math.pow(edge.getY() - center.getY(), 2));
-        Circle circle = new Circle(center, (int) radius, getLineType(), app.getRasterizer().getColor(), app.getLineWidth());
+        previewRadius = (int) Math.sqrt(Math.pow(e.getX() - center.getX(), 2) + Math.pow(e.getY() - center.getY(), 2));
 
-        app.redrawCanvas();
-        app.getRasterizer().rasterize(circle);
-        app.getPanel().repaint();
+        Circle.getBounds(center.getX(), center.getY(), previewRadius, app.getLineWidth(), bounds);
+        redrawPreview(bounds, preview);
+    }
+
+    private void drawPreview() {
+        Point center = app.getPPomocny();
+        app.getOverlayRasterizer().rasterizeCircle(center.getX(), center.getY(), previewRadius,
+                app.getRasterizer().getColor().getRGB(), getLineType(), app.getLineWidth());
     }
 
     @Override
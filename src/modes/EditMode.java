@@ -1,10 +1,12 @@
 package modes;
 
 import app.App;
+import models.CanvasEdit;
 import models.Circle;
 import models.Line;
 import models.LineCanvas;
 import models.Point;
+import utils.Utils;
 
 import java.awt.*;
 import java.awt.event.MouseEvent;
@@ -43,6 +45,14 @@ public class EditMode extends BaseMode {
     }
 
     private SelectedObjectInfo selectedObjectInfo;
+    // Scene area the selected object covered after the last drag step.
+    private Rectangle selectedBounds;
+    // Area it covered when it was picked; the spatial index and the fills catch up from there on release.
+    private Rectangle pickedBounds;
+    // Reused by every drag frame.
+    private final Rectangle bounds = new Rectangle();
+    private final Rectangle damage = new Rectangle();
+    private final Runnable drawSelection = this::drawSelected;
 
     public EditMode(App app) {
         super(app);
@@ -53,28 +63,33 @@ public class EditMode extends BaseMode {
         Point mousePoint = new Point(e.getX(), e.getY());
         LineCanvas canvas = app.getLineCanvas();
         selectedObjectInfo = null; // Deselect any previously selected object
+        selectedBounds = null;
 
-        // Iterate through lines and circles to find the closest object
-        List<Line> lines = canvas.getLines();
+        // Ask the spatial index for nearby lines and circles, in drawing order
+        List<Line> lines = canvas.findLinesNear(mousePoint.getX(), mousePoint.getY(), THRESHOLD);
         for (Line line : lines) {
             SelectedPart part = getLineSelectedPart(mousePoint, line);
             if (part != SelectedPart.NONE) {
                 selectedObjectInfo = new SelectedObjectInfo(line, part, mousePoint);
-                app.updateUIPanelProperties(line.getColor(), line.getLineWidth());
-                app.setCurrentColor(line.getColor());
-                app.setLineWidth(line.getLineWidth());
+                selectedBounds = line.getBounds();
+                pickedBounds = new Rectangle(selectedBounds);
+                app.adoptStyle(line.getColor(), line.getLineWidth());
+                canvas.beginReshape(line);
+                app.beginDrag(line, selectedBounds);
                 return;
             }
         }
 
-        List<Circle> circles = canvas.getCircles();
+        List<Circle> circles = canvas.findCirclesNear(mousePoint.getX(), mousePoint.getY(), THRESHOLD);
         for (Circle circle : circles) {
             SelectedPart part = getCircleSelectedPart(mousePoint, circle);
             if (part != SelectedPart.NONE) {
                 selectedObjectInfo = new SelectedObjectInfo(circle, part, mousePoint);
-                app.updateUIPanelProperties(circle.getColor(), circle.getLineWidth());
-                app.setCurrentColor(circle.getColor());
-                app.setLineWidth(circle.getLineWidth());
+                selectedBounds = circle.getBounds();
+                pickedBounds = new Rectangle(selectedBounds);
+                app.adoptStyle(circle.getColor(), circle.getLineWidth());
+                canvas.beginReshape(circle);
+                app.beginDrag(circle, selectedBounds);
                 return;
             }
         }
@@ -86,9 +101,8 @@ public class EditMode extends BaseMode {
             return;
         }
 
-        Point mousePoint = new Point(e.getX(), e.getY());
-        int dx = mousePoint.getX() - selectedObjectInfo.initialMousePosition.getX();
-        int dy = mousePoint.getY() - selectedObjectInfo.initialMousePosition.getY();
+        int dx = e.getX() - selectedObjectInfo.initialMousePosition.getX();
+        int dy = e.getY() - selectedObjectInfo.initialMousePosition.getY();
 
         Object selectedObject = selectedObjectInfo.object;
         SelectedPart selectedPart = selectedObjectInfo.part;
@@ -114,21 +128,56 @@ public class EditMode extends BaseMode {
                 circle.getCenter().setY(selectedObjectInfo.initialCenter.getY() + dy);
             } else if (selectedPart == SelectedPart.CIRCLE_EDGE) {
                 Point center = circle.getCenter();
-                double newRadius = Math.sqrt(Math.pow(mousePoint.getX() - center.getX(), 2) + Math.pow(mousePoint.getY() - center.getY(), 2));
+                double newRadius = Math.sqrt(Math.pow(e.getX() - center.getX(), 2) + Math.pow(e.getY() - center.getY(), 2));
                 circle.setRadius((int) newRadius);
             }
         }
 
-        app.redrawCanvas();
-        app.getPanel().repaint();
+        // Only the selection is rasterized; the rest comes from the background cached when it was picked.
+        getSelectedBounds(bounds);
+        damage.setBounds(selectedBounds);
+        damage.add(bounds);
+        app.redrawDrag(damage, drawSelection);
+        selectedBounds.setBounds(bounds);
     }
 
     @Override
     public void mouseReleased(MouseEvent e) {
+        if (selectedObjectInfo != null) {
+            boolean moved = hasMoved();
+            app.getLineCanvas().endReshape();
+            if (moved) {
+                updateIndex(pickedBounds);
+            }
+            app.endDrag(getSelectedBounds());
+            if (moved) {
+                recordMove();
+            }
+        }
         selectedObjectInfo = null;
+        selectedBounds = null;
+        pickedBounds = null;
         app.resetUIPanelProperties();
-        app.redrawCanvas();
-        app.getPanel().repaint();
+    }
+
+    private Rectangle getSelectedBounds() {
+        if (selectedObjectInfo == null) return null;
+        return getSelectedBounds(new Rectangle());
+    }
+
+    private Rectangle getSelectedBounds(Rectangle out) {
+        if (selectedObjectInfo.object instanceof Line) {
+            return ((Line) selectedObjectInfo.object).getBounds(out);
+        }
+        return ((Circle) selectedObjectInfo.object).getBounds(out);
+    }
+
+    private void drawSelected() {
+        if (selectedObjectInfo.object instanceof Line) {
+            app.getRasterizer().rasterize((Line) selectedObjectInfo.object);
+        } else {
+            app.getRasterizer().rasterize((Circle) selectedObjectInfo.object);
+        }
     }
 
     private SelectedPart getLineSelectedPart(Point p, Line line) {
@@ -156,76 +205,91 @@ public class EditMode extends BaseMode {
     }
 
     private boolean isPointNearPoint(Point p1, Point p2) {
-        double dx = p1.getX() - p2.getX();
-        double dy = p1.getY() - p2.getY();
-        return Math.sqrt(dx * dx + dy * dy) < THRESHOLD;
+        return Utils.isPointNearPoint(p1, p2, THRESHOLD);
     }
 
     private boolean isPointNearLine(Point p, Line line) {
-        Point p1 = line.getP1();
-        Point p2 = line.getP2();
+        return Utils.isPointNearSegment(p, line.getP1(), line.getP2(), THRESHOLD);
+    }
 
-        if (p1.getX() == p2.getX() && p1.getY() == p2.getY()) {
-            double dx = p.getX() - p1.getX();
-            double dy = p.getY() - p1.getY();
-            return Math.sqrt(dx * dx + dy * dy) < THRESHOLD;
-        }
+    private boolean isPointNearCircleEdge(Point p, Circle circle) {
+        return Utils.isPointNearCircleEdge(p, circle.getCenter(), circle.getRadius(), THRESHOLD);
+    }
 
-        double px = p2.getX() - p1.getX();
-        double py = p2.getY() - p1.getY();
-        double temp = (px * px) + (py * py);
-        double u = ((p.getX() - p1.getX()) * px + (p.getY() - p1.getY()) * py) / temp;
+    private boolean isPointNearCircleBody(Point p, Circle circle) {
+        return Utils.isPointInsideCircle(p, circle.getCenter(), circle.getRadius());
+    }
 
-        if (u > 1) {
-            u = 1;
-        } else if (u < 0) {
-            u = 0;
+    private boolean hasMoved() {
+        SelectedObjectInfo info = selectedObjectInfo;
+        if (info.object instanceof Line) {
+            Line line = (Line) info.object;
+            return !samePoint(line.getP1(), info.initialP1) || !samePoint(line.getP2(), info.initialP2);
         }
+        Circle circle = (Circle) info.object;
+        return !samePoint(circle.getCenter(), info.initialCenter) || circle.getRadius() != info.initialRadius;
+    }
 
-        double x = p1.getX() + u * px;
-        double y = p1.getY() + u * py;
-
-        double dx = x - p.getX();
-        double dy = y - p.getY();
-        double dist = Math.sqrt(dx * dx + dy * dy);
-
-        return dist < THRESHOLD;
+    private void recordMove() {
+        SelectedObjectInfo info = selectedObjectInfo;
+        if (info.object instanceof Line) {
+            app.record(CanvasEdit.moveLine((Line) info.object, info.initialP1, info.initialP2));
+        } else if (info.object instanceof Circle) {
+            app.record(CanvasEdit.moveCircle((Circle) info.object, info.initialCenter, info.initialRadius));
+        }
     }
 
-    private boolean isPointNearCircleEdge(Point p, Circle circle) {
-        Point center = circle.getCenter();
-        double dx = p.getX() - center.getX();
-        double dy = p.getY() - center.getY();
-        double dist = Math.sqrt(dx * dx + dy * dy);
-        return Math.abs(dist - circle.getRadius()) < THRESHOLD;
+    private static boolean samePoint(Point a, Point b) {
+        return a.getX() == b.getX() && a.getY() == b.getY();
     }
 
-    private boolean isPointNearCircleBody(Point p, Circle circle) {
-        Point center = circle.getCenter();
-        double dx = p.getX() - center.getX();
-        double dy = p.getY() - center.getY();
-        double dist = Math.sqrt(dx * dx + dy * dy);
-        return dist < circle.getRadius();
+    private void updateIndex(Rectangle before) {
+        if (selectedObjectInfo.object instanceof Line) {
+            app.getLineCanvas().updateLine((Line) selectedObjectInfo.object, before);
+        } else if (selectedObjectInfo.object instanceof Circle) {
+            app.getLineCanvas().updateCircle((Circle) selectedObjectInfo.object, before);
+        }
     }
 
-    public void updateSelectedObjectColor(Color color) {
-        if (selectedObjectInfo != null) {
-            if (selectedObjectInfo.object instanceof Line) {
-                ((Line) selectedObjectInfo.object).setColor(color);
-            } else if (selectedObjectInfo.object instanceof Circle) {
-                ((Circle) selectedObjectInfo.object).setColor(color);
-            }
+    // Recolors the selection; returns the edit for the caller to record once the scene is redrawn, or null.
+    public CanvasEdit updateSelectedObjectColor(Color color) {
+        if (selectedObjectInfo == null) return null;
+        if (selectedObjectInfo.object instanceof Line) {
+            Line line = (Line) selectedObjectInfo.object;
+            if (color.equals(line.getColor())) return null;
+            Color before = line.getColor();
+            line.setColor(color);
+            return CanvasEdit.restyle(line, before, line.getLineWidth());
+        } else if (selectedObjectInfo.object instanceof Circle) {
+            Circle circle = (Circle) selectedObjectInfo.object;
+            if (color.equals(circle.getColor())) return null;
+            Color before = circle.getColor();
+            circle.setColor(color);
+            return CanvasEdit.restyle(circle, before, circle.getLineWidth());
         }
+        return null;
     }
 
-    public void updateSelectedObjectLineWidth(int lineWidth) {
-        if (selectedObjectInfo != null) {
-            if (selectedObjectInfo.object instanceof Line) {
-                ((Line) selectedObjectInfo.object).setLineWidth(lineWidth);
-            } else if (selectedObjectInfo.object instanceof Circle) {
-                ((Circle) selectedObjectInfo.object).setLineWidth(lineWidth);
-            }
+    public CanvasEdit updateSelectedObjectLineWidth(int lineWidth) {
+        if (selectedObjectInfo == null) return null;
+        CanvasEdit edit = null;
+        Rectangle area = getSelectedBounds();
+        if (selectedObjectInfo.object instanceof Line) {
+            Line line = (Line) selectedObjectInfo.object;
+            if (line.getLineWidth() == lineWidth) return null;
+            int before = line.getLineWidth();
+            line.setLineWidth(lineWidth);
+            edit = CanvasEdit.restyle(line, line.getColor(), before);
+        } else if (selectedObjectInfo.object instanceof Circle) {
+            Circle circle = (Circle) selectedObjectInfo.object;
+            if (circle.getLineWidth() == lineWidth) return null;
+            int before = circle.getLineWidth();
+            circle.setLineWidth(lineWidth);
+            edit = CanvasEdit.restyle(circle, circle.getColor(), before);
         }
+        updateIndex(area);
+        selectedBounds = getSelectedBounds();
+        return edit;
     }
 
     @Override
@@ -1,15 +1,22 @@
 package modes;
 
 import app.App;
+import models.CanvasEdit;
 import models.Line;
 import models.LineType;
 import models.Point;
 import utils.Utils;
 
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 
 public class LineMode extends BaseMode {
 
+    // Drag state reused by every preview frame; the preview is drawn from coordinates, without a Line.
+    private final Point cursor = new Point(0, 0);
+    private final Rectangle bounds = new Rectangle();
+    private final Runnable preview = this::drawPreview;
+
     public LineMode(App app) {
         super(app);
     }
@@ -27,6 +34,7 @@ public class LineMode extends BaseMode {
     @Override
     public void mousePressed(MouseEvent e) {
         app.setPPomocny(new Point(e.getX(), e.getY()));
+        previewBounds = null;
     }
 
     @Override
@@ -38,30 +46,34 @@ public class LineMode extends BaseMode {
             p2 = Utils.snapPoint(p1, p2);
         }
 
+        if (p1 == null) return;
+
         Line line = new Line(p1, p2, app.getRasterizer().getColor(), getLineType(), app.getLineWidth());
 
-        app.redrawCanvas();
         app.getLineCanvas().addLine(line);
-        app.getCanvasRasterizer().rasterize(app.getLineCanvas());
-
-        app.getPanel().repaint();
+        commitPreview(line.getBounds());
+        app.record(CanvasEdit.addLine(line));
     }
 
     @Override
     public void mouseDragged(MouseEvent e) {
         Point p1 = app.getPPomocny();
-        Point p2 = new Point(e.getX(), e.getY());
+        if (p1 == null) return;
 
-        if (app.isSnapMode() && p1 != null) {
-            p2 = Utils.snapPoint(p1, p2);
+        cursor.setX(e.getX());
+        cursor.setY(e.getY());
+        if (app.isSnapMode()) {
+            Utils.snapPoint(p1, cursor, false, cursor);
         }
 
-        Line line = new Line(p1, p2, app.getRasterizer().getColor(), getLineType(), app.getLineWidth());
-
-        app.redrawCanvas();
-        app.getRasterizer().rasterize(line);
+        Line.getBounds(p1.getX(), p1.getY(), cursor.getX(), cursor.getY(), app.getLineWidth(), bounds);
+        redrawPreview(bounds, preview);
+    }
 
-        app.getPanel().repaint();
+    private void drawPreview() {
+        Point p1 = app.getPPomocny();
+        app.getOverlayRasterizer().rasterizeLine(p1.getX(), p1.getY(), cursor.getX(), cursor.getY(),
+                app.getRasterizer().getColor().getRGB(), getLineType(), app.getLineWidth());
     }
 
     @Override
@@ -1,14 +1,23 @@
 package modes;
 
 import app.App;
-import models.Line;
+import models.LineType;
 import models.Point;
+import rasterizers.Rasterizer;
 import utils.Utils;
 
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
+import java.util.List;
 
 public class PolygonMode extends BaseMode {
 
+    // Drag state reused by every preview frame.
+    private final Point cursor = new Point(0, 0);
+    private final Rectangle bounds = new Rectangle();
+    private final Runnable edgePreview = this::drawEdgePreview;
+    private final Runnable vertexPreview = this::drawVertexPreview;
+
     public PolygonMode(App app) {
         super(app);
     }
@@ -17,7 +26,9 @@ public class PolygonMode extends BaseMode {
     public void mousePressed(MouseEvent e) {
         app.setPPomocny(new Point(e.getX(), e.getY()));
 
-        if (!app.getPolygonPoints().isEmpty()) {
+        if (app.getPolygonPoints().isEmpty()) {
+            previewBounds = null;
+        } else {
             int idx = app.getVertexIndexNear(app.getPPomocny());
             if (idx != -1) {
                 app.setMovingVertexIndex(idx);
@@ -48,38 +59,73 @@ public class PolygonMode extends BaseMode {
 
         app.getPolygonPoints().add(p2);
         app.redrawPolygon();
+        setPreviewBounds(getPolygonBounds(null));
     }
 
     @Override
     public void mouseDragged(MouseEvent e) {
-        Point p2 = new Point(e.getX(), e.getY());
-
         if (app.getMovingVertexIndex() != -1) {
             Point target = app.getPolygonPoints().get(app.getMovingVertexIndex());
-            target.setX(p2.getX());
-            target.setY(p2.getY());
-            app.redrawPolygon();
+            target.setX(e.getX());
+            target.setY(e.getY());
+            redrawPreview(getPolygonBounds(null), vertexPreview);
             return;
         }
 
+        cursor.setX(e.getX());
+        cursor.setY(e.getY());
         if (app.isSnapMode() && app.getPPomocny() != null) {
-            p2 = Utils.snapPoint(app.getPPomocny(), p2);
+            Utils.snapPoint(app.getPPomocny(), cursor, false, cursor);
         }
+        redrawPreview(getPolygonBounds(cursor), edgePreview);
+    }
+
+    private void drawVertexPreview() {
+        app.drawPolygonEdges();
+        app.drawPolygonClosingEdge();
+    }
 
-        app.redrawCanvas();
+    private void drawEdgePreview() {
         app.drawPolygonEdges();
 
-        Point last = app.getPolygonPoints().isEmpty() ? app.getPPomocny() : app.getPolygonPoints().get(app.getPolygonPoints().size() - 1);
+        List<Point> points = app.getPolygonPoints();
+        LineType lineType = app.isDottedMode() ? LineType.DOTTED : LineType.SOLID;
+        Rasterizer overlay = app.getOverlayRasterizer();
+        Point last = points.isEmpty() ? app.getPPomocny() : points.get(points.size() - 1);
         if (last != null) {
-            app.getRasterizer().rasterize(new Line(last, p2, app.isDottedMode()));
+            overlay.rasterizeLine(last.getX(), last.getY(), cursor.getX(), cursor.getY(), 0, lineType, 1);
         }
 
-        if (!app.getPolygonPoints().isEmpty()) {
-            Point first = app.getPolygonPoints().get(0);
-            app.getRasterizer().rasterize(new Line(p2, first, app.isDottedMode()));
+        if (!points.isEmpty()) {
+            Point first = points.get(0);
+            overlay.rasterizeLine(cursor.getX(), cursor.getY(), first.getX(), first.getY(), 0, lineType, 1);
         }
+    }
 
-        app.getPanel().repaint();
+    // Bounds of the polygon preview: all vertices, the press point and the cursor (edges are one pixel wide).
+    private Rectangle getPolygonBounds(Point cursor) {
+        List<Point> points = app.getPolygonPoints();
+        bounds.setBounds(0, 0, -1, -1);
+        for (int i = 0; i < points.size(); i++) {
+            include(bounds, points.get(i));
+        }
+        include(bounds, app.getPPomocny());
+        include(bounds, cursor);
+        if (bounds.width < 0) {
+            bounds.setBounds(0, 0, 0, 0);
+        }
+        return bounds;
+    }
+
+    // Grows bounds to cover the pixel at p; a rectangle with negative size becomes that pixel.
+    private static void include(Rectangle bounds, Point p) {
+        if (p == null) return;
+        if (bounds.width < 0) {
+            bounds.setBounds(p.getX(), p.getY(), 1, 1);
+        } else {
+            bounds.add(p.getX(), p.getY());
+            bounds.add(p.getX() + 1, p.getY() + 1);
+        }
     }
 
     @Override
@@ -1,13 +1,14 @@
 package modes;
 
 import app.App;
+import models.CanvasEdit;
 import models.Circle;
 import models.Line;
 import models.LineCanvas;
 import models.Point;
+import utils.Utils;
 
 import java.awt.event.MouseEvent;
-import java.util.Iterator;
 
 public class RemoveMode extends BaseMode {
 
@@ -23,25 +24,21 @@ public class RemoveMode extends BaseMode {
         LineCanvas canvas = app.getLineCanvas();
 
         // Remove lines
-        Iterator<Line> lineIterator = canvas.getLines().iterator();
-        while (lineIterator.hasNext()) {
-            Line line = lineIterator.next();
+        for (Line line : canvas.findLinesNear(p.getX(), p.getY(), THRESHOLD)) {
             if (isPointNearLine(p, line)) {
-                lineIterator.remove();
-                app.redrawCanvas();
-                app.getPanel().repaint();
+                int index = canvas.removeLine(line);
+                app.redrawRegion(line.getBounds());
+                app.record(CanvasEdit.removeLine(line, index));
                 return;
             }
         }
 
         // Remove circles
-        Iterator<Circle> circleIterator = canvas.getCircles().iterator();
-        while (circleIterator.hasNext()) {
-            Circle circle = circleIterator.next();
+        for (Circle circle : canvas.findCirclesNear(p.getX(), p.getY(), THRESHOLD)) {
             if (isPointNearCircle(p, circle)) {
-                circleIterator.remove();
-                app.redrawCanvas();
-                app.getPanel().repaint();
+                int index = canvas.removeCircle(circle);
+                app.redrawRegion(circle.getBounds());
+                app.record(CanvasEdit.removeCircle(circle, index));
                 return;
             }
         }
@@ -49,42 +46,11 @@ public class RemoveMode extends BaseMode {
     }
 
     private boolean isPointNearLine(Point p, Line line) {
-        Point p1 = line.getP1();
-        Point p2 = line.getP2();
-
-        if (p1.getX() == p2.getX() && p1.getY() == p2.getY()) {
-            double dx = p.getX() - p1.getX();
-            double dy = p.getY() - p1.getY();
-            return Math.sqrt(dx * dx + dy * dy) < THRESHOLD;
-        }
-
-        double px = p2.getX() - p1.getX();
-        double py = p2.getY() - p1.getY();
-        double temp = (px * px) + (py * py);
-        double u = ((p.getX() - p1.getX()) * px + (p.getY() - p1.getY()) * py) / temp;
-
-        if (u > 1) {
-            u = 1;
-        } else if (u < 0) {
-            u = 0;
-        }
-
-        double x = p1.getX() + u * px;
-        double y = p1.getY() + u * py;
-
-        double dx = x - p.getX();
-        double dy = y - p.getY();
-        double dist = Math.sqrt(dx * dx + dy * dy);
-
-        return dist < THRESHOLD;
+        return Utils.isPointNearSegment(p, line.getP1(), line.getP2(), THRESHOLD);
     }
 
     private boolean isPointNearCircle(Point p, Circle circle) {
-        Point center = circle.getCenter();
-        double dx = p.getX() - center.getX();
-        double dy = p.getY() - center.getY();
-        double dist = Math.sqrt(dx * dx + dy * dy);
-        return Math.abs(dist - circle.getRadius()) < THRESHOLD;
+        return Utils.isPointNearCircleEdge(p, circle.getCenter(), circle.getRadius(), THRESHOLD);
     }
 
     @Override
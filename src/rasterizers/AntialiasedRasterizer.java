@@ -0,0 +1,170 @@
+package rasterizers;
+
+import models.LineType;
+import models.StrokePattern;
+import rasters.Raster;
+
+import java.awt.*;
+
+/**
+ * Anti-aliased rasterizer. Thin lines use Xiaolin Wu's algorithm with a 32.32 fixed-point minor coordinate:
+ * each step splits the color between the two pixels around the exact line. Thick lines and dots go through
+ * {@link AntialiasedStroker}; other circles are drawn as a ring whose coverage falls off over half a
+ * pixel on both edges. Clipping and stroke patterns work as in {@link TrivialRasterizer}.
+ * <p>
+ * Opt-in only: blending every edge pixel makes typical scenes about twice as slow as the aliased rasterizers.
+ */
+public class AntialiasedRasterizer extends TrivialRasterizer {
+
+    private static final int FRACTION_BITS = 32;
+
+    public AntialiasedRasterizer(Raster raster, Color defaultColor) {
+        super(raster, defaultColor, new AntialiasedStroker(raster));
+    }
+
+    @Override
+    public Rasterizer forRaster(Raster raster) {
+        return new AntialiasedRasterizer(raster, getColor());
+    }
+
+    @Override
+    protected void rasterizeThinLine(int x1, int y1, int x2, int y2, int c, StrokePattern.Runs runs) {
+        boolean steep = Math.abs(y2 - y1) > Math.abs(x2 - x1);
+        if (steep ? y1 > y2 : x1 > x2) {
+            int tx = x1, ty = y1;
+            x1 = x2; y1 = y2;
+            x2 = tx; y2 = ty;
+        }
+        int major = steep ? y2 - y1 : x2 - x1;
+        int minor = steep ? x2 - x1 : y2 - y1;
+        // Minor-axis change per step, in fixed point.
+        long gradient = major == 0 ? 0 : ((long) minor << FRACTION_BITS) / major;
+
+        double slope = major == 0 ? 0 : (double) minor / major;
+        if (!clipSteps(x1, y1, steep ? slope : 1, steep ? 1 : slope, major, 1)) return;
+        dash.reset(runs, stepFrom);
+        for (int i = stepFrom; i <= stepTo; dash.next()) {
+            int last = dash.last(stepTo);
+            if (!dash.isOn()) {
+                i = last + 1;
+                continue;
+            }
+            // The same value step i gets by adding the gradient from step 0, so the pixels do not depend on
+            // where the clip starts the line. The product may overflow, the position itself cannot.
+            long position = ((long) (steep ? x1 : y1) << FRACTION_BITS) + i * gradient;
+            for (; i <= last; i++) {
+                int whole = (int) (position >> FRACTION_BITS);
+                int fraction = (int) (position >>> (FRACTION_BITS - 8)) & 0xff;
+                int along = (steep ? y1 : x1) + i;
+                if (steep) {
+                    raster.blendPixel(whole, along, c, 255 - fraction);
+                    if (fraction != 0) raster.blendPixel(whole + 1, along, c, fraction);
+                } else {
+                    raster.blendPixel(along, whole, c, 255 - fraction);
+                    if (fraction != 0) raster.blendPixel(along, whole + 1, c, fraction);
+                }
+                position += gradient;
+            }
+        }
+    }
+
+    @Override
+    public void rasterizeCircle(int x0, int y0, int r, int argb, LineType lineType, int lineWidth) {
+        int c = argb != 0 ? argb : getColor().getRGB();
+        StrokePattern.Runs runs = lineType.getPattern().compile(lineWidth);
+        int radius = (lineWidth - 1) / 2;
+        if (radius > 0 && lineType == LineType.DOTTED) {
+            // Thick dots are discs along the midpoint circle, as in the aliased rasterizer; the stroker blends them.
+            super.rasterizeCircle(x0, y0, r, argb, lineType, lineWidth);
+            return;
+        }
+        if (!ringMayTouchClip(x0, y0, r, radius)) return;
+
+        // The ring covers distances within reach of r; edge pixels get the part of a pixel still inside.
+        // All four bounds are whole numbers, so the walk below tracks them on squared integer distances.
+        double reach = radius + 0.5;
+        long outer = (long) r + radius + 1;
+        long inner = (long) r - radius - 1;
+        // Distances with full coverage. Solid rings fill them row by row; the octant walk below only
+        // visits the blended pixels around them.
+        long fullOuter = (long) r + radius;
+        long fullInner = (long) r - radius;
+        boolean filled = runs == null && fullOuter > fullInner;
+        if (filled) {
+            fillRing(x0, y0, fullInner, fullOuter, c);
+        }
+
+        // Columns of one octant (0 <= x <= y), mirrored eight ways, so every distance is computed once.
+        // Column bounds only shrink as x grows: yTo is the last y within outer, yFrom the first one not
+        // inside inner, skipTo and skipFrom the same for the filled distances.
+        int clipRight = clip.x + clip.width - 1, clipBottom = clip.y + clip.height - 1;
+        long yTo = outer, yFrom = Math.max(inner, 0), skipTo = fullOuter, skipFrom = Math.max(fullInner, 0);
+        for (long x = 0; x <= outer; x++) {
+            long x2 = x * x;
+            while (yTo >= 0 && yTo * yTo + x2 > outer * outer) yTo--;
+            while (yFrom > 0 && (yFrom - 1) * (yFrom - 1) + x2 >= inner * inner) yFrom--;
+            while (skipTo >= 0 && skipTo * skipTo + x2 > fullOuter * fullOuter) skipTo--;
+            while (skipFrom > 0 && (skipFrom - 1) * (skipFrom - 1) + x2 >= fullInner * fullInner) skipFrom--;
+            if (x > yTo) break;
+            // Every image of this column lies in row y0 +- x or in column x0 +- x.
+            if ((x0 + x < clip.x || x0 + x > clipRight) && (x0 - x < clip.x || x0 - x > clipRight)
+                    && (y0 + x < clip.y || y0 + x > clipBottom) && (y0 - x < clip.y || y0 - x > clipBottom)) {
+                continue;
+            }
+            long skipLo = filled ? skipFrom : Long.MAX_VALUE, skipHi = filled ? skipTo : Long.MIN_VALUE;
+            // Upwards from the outer edge, so the pattern index r * x / distance never falls and the dash
+            // cursor only moves forward.
+            long yLow = Math.max(x, yFrom);
+            if (runs != null && yLow <= yTo) {
+                double distance = Math.sqrt((double) (x2 + yTo * yTo));
+                dash.reset(runs, distance == 0 ? 0 : (long) ((double) r * x / distance));
+            }
+            for (long y = yTo; y >= yLow; y--) {
+                if (y >= skipLo && y <= skipHi) {
+                    y = skipLo;
+                    continue;
+                }
+                double distance = Math.sqrt((double) (x2 + y * y));
+                int coverage = (int) ((reach + 0.5 - Math.abs(distance - r)) * 256);
+                if (coverage <= 0) continue;
+                // Same pattern index as the aliased ring: the midpoint step of the pixel's projection.
+                if (runs != null) {
+                    double next = dash.nextStart();
+                    while (distance > 0 && next * distance <= (double) r * x) {
+                        dash.next();
+                        next = dash.nextStart();
+                    }
+                    if (!dash.isOn()) continue;
+                }
+                coverage = Math.min(coverage, 255);
+                blendMirrored(x0, y0, (int) x, (int) y, c, coverage);
+                if (x != y) blendMirrored(x0, y0, (int) y, (int) x, c, coverage);
+            }
+        }
+    }
+
+    // Spans of the ring between two distances, row by row within the clip; rows are mirrored at column 0.
+    private void fillRing(int x0, int y0, long from, long to, int c) {
+        int dyFrom = (int) Math.max(-to, clip.y - y0);
+        int dyTo = (int) Math.min(to, clip.y + clip.height - 1 - y0);
+        for (int dy = dyFrom; dy <= dyTo; dy++) {
+            double dy2 = (double) dy * dy;
+            int xTo = (int) Math.floor(Math.sqrt(to * to - dy2));
+            int xFrom = from > Math.abs(dy) ? (int) Math.ceil(Math.sqrt(from * from - dy2)) : 0;
+            if (xFrom > xTo) continue;
+            raster.fillSpan(y0 + dy, x0 + xFrom, x0 + xTo, c);
+            int mirrorFrom = Math.max(xFrom, 1);
+            if (mirrorFrom <= xTo) raster.fillSpan(y0 + dy, x0 - xTo, x0 - mirrorFrom, c);
+        }
+    }
+
+    // The four pixels (+-x, +-y) around the center, each once.
+    private void blendMirrored(int x0, int y0, int x, int y, int c, int coverage) {
+        raster.blendPixel(x0 + x, y0 + y, c, coverage);
+        if (x != 0) raster.blendPixel(x0 - x, y0 + y, c, coverage);
+        if (y != 0) {
+            raster.blendPixel(x0 + x, y0 - y, c, coverage);
+            if (x != 0) raster.blendPixel(x0 - x, y0 - y, c, coverage);
+        }
+    }
+}
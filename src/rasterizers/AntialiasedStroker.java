@@ -0,0 +1,152 @@
+package rasterizers;
+
+import rasters.Raster;
+
+import java.awt.Rectangle;
+
+/**
+ * Stroker with anti-aliased round strokes. A stroke of radius r covers the points within r + 0.5 of the
+ * segment, so its width matches the aliased stroke. A pixel's coverage is that distance minus the distance
+ * from its center, clamped to 0..1. Each row has one span of full coverage, which is filled; only the
+ * pixels at the two ends of the row are blended.
+ */
+public class AntialiasedStroker extends Stroker {
+
+    private final Raster raster;
+    private final Rectangle clip = new Rectangle();
+    // The current segment and the quotients of rowInterval that depend only on it, set by capsule.
+    private double x1, y1, x2, y2, len;
+    private double bodySlope, bodyWidth, sideSlope, sideScale;
+    // Result of rowInterval.
+    private double lo, hi;
+
+    public AntialiasedStroker(Raster raster) {
+        super(raster);
+        this.raster = raster;
+    }
+
+    @Override
+    public void strokeSegment(double x1, double y1, double x2, double y2, int radius, CapStyle cap, int color) {
+        if (cap != CapStyle.ROUND) {
+            super.strokeSegment(x1, y1, x2, y2, radius, cap, color);
+            return;
+        }
+        capsule(x1, y1, x2, y2, radius + 0.5, color);
+    }
+
+    @Override
+    public void fillDisc(int cx, int cy, int radius, int color) {
+        capsule(cx, cy, cx, cy, radius + 0.5, color);
+    }
+
+    private void capsule(double x1, double y1, double x2, double y2, double reach, int color) {
+        double outer = reach + 0.5;
+        double inner = reach - 0.5;
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double len2 = dx * dx + dy * dy;
+        double len = Math.sqrt(len2);
+        double invLen = len2 == 0 ? 0 : 1 / len;
+        setSegment(x1, y1, x2, y2, len);
+
+        raster.getClipBounds(clip);
+        int clipRight = clip.x + clip.width - 1;
+        int yStart = Math.max((int) Math.ceil(Math.min(y1, y2) - outer), clip.y);
+        int yEnd = Math.min((int) Math.floor(Math.max(y1, y2) + outer), clip.y + clip.height - 1);
+
+        for (int y = yStart; y <= yEnd; y++) {
+            if (!rowInterval(y, outer)) continue;
+            int xa = Math.max((int) Math.ceil(lo), clip.x);
+            int xb = Math.min((int) Math.floor(hi), clipRight);
+            int fullFrom = Integer.MAX_VALUE, fullTo = Integer.MIN_VALUE;
+            if (inner > 0 && rowInterval(y, inner)) {
+                fullFrom = (int) Math.ceil(lo);
+                fullTo = (int) Math.floor(hi);
+            }
+            for (int x = xa; x <= xb; x++) {
+                if (x >= fullFrom && x <= fullTo) {
+                    int to = Math.min(fullTo, xb);
+                    raster.fillSpan(y, x, to, color);
+                    x = to;
+                    continue;
+                }
+                // Distance from the pixel center to the segment: to its line between the end normals,
+                // to the nearer end outside them.
+                double ex = x - x1, ey = y - y1;
+                double along = ex * dx + ey * dy;
+                double distance;
+                if (along > 0 && along < len2) {
+                    distance = Math.abs(ex * dy - ey * dx) * invLen;
+                } else {
+                    if (along >= len2) {
+                        ex = x - x2;
+                        ey = y - y2;
+                    }
+                    distance = Math.sqrt(ex * ex + ey * ey);
+                }
+                int coverage = (int) ((outer - distance) * 256);
+                if (coverage > 0) {
+                    raster.blendPixel(x, y, color, Math.min(coverage, 255));
+                }
+            }
+        }
+    }
+
+    // Rows only multiply by these, so the interval of a row needs no division.
+    private void setSegment(double x1, double y1, double x2, double y2, double len) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.len = len;
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        bodySlope = dx == 0 ? 0 : dy / dx;
+        bodyWidth = dx == 0 ? 0 : len * len / dx;
+        sideSlope = dy == 0 ? 0 : dx / dy;
+        sideScale = dy == 0 ? 0 : len / dy;
+    }
+
+    // Range [lo, hi] of row y within distance reach of the segment: the body between the end normals,
+    // joined with the discs around both ends. Convex, so it is a single interval. False when empty.
+    private boolean rowInterval(double y, double reach) {
+        lo = Double.POSITIVE_INFINITY;
+        hi = Double.NEGATIVE_INFINITY;
+        double ry = y - y1;
+        if (len > 0 && x2 != x1) {
+            // t(x) = ((x - x1) dx + (y - y1) dy) / len2 in [0, 1], s(x) = ((x - x1) dy - (y - y1) dx) / len in [-reach, reach].
+            double tA = x1 - ry * bodySlope;
+            double tB = tA + bodyWidth;
+            double bodyLo = Math.min(tA, tB), bodyHi = Math.max(tA, tB);
+            if (y2 != y1) {
+                double sA = x1 + ry * sideSlope - reach * sideScale;
+                double sB = x1 + ry * sideSlope + reach * sideScale;
+                bodyLo = Math.max(bodyLo, Math.min(sA, sB));
+                bodyHi = Math.min(bodyHi, Math.max(sA, sB));
+            } else if (Math.abs(ry) > reach) {
+                bodyLo = Double.POSITIVE_INFINITY;
+            }
+            if (bodyLo <= bodyHi) {
+                lo = bodyLo;
+                hi = bodyHi;
+            }
+        } else if (len > 0) {
+            // Vertical segment: the body is a band of half-width reach between the end rows.
+            if (y >= Math.min(y1, y2) && y <= Math.max(y1, y2)) {
+                lo = x1 - reach;
+                hi = x1 + reach;
+            }
+        }
+        joinDisc(ry, x1, reach);
+        joinDisc(y - y2, x2, reach);
+        return lo <= hi;
+    }
+
+    private void joinDisc(double dy, double cx, double reach) {
+        double rest = reach * reach - dy * dy;
+        if (rest < 0) return;
+        double half = Math.sqrt(rest);
+        lo = Math.min(lo, cx - half);
+        hi = Math.max(hi, cx + half);
+    }
+}
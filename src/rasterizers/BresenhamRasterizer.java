@@ -0,0 +1,64 @@
+package rasterizers;
+
+import models.StrokePattern;
+import rasters.Raster;
+
+import java.awt.*;
+
+/**
+ * TrivialRasterizer with an integer-only Bresenham core for thin lines.
+ * The error term reproduces Math.round of the exact line, so pixels and dot/dash phase match TrivialRasterizer.
+ */
+public class BresenhamRasterizer extends TrivialRasterizer {
+
+    public BresenhamRasterizer(Raster raster, Color defaultColor) {
+        super(raster, defaultColor);
+    }
+
+    @Override
+    public Rasterizer forRaster(Raster raster) {
+        return new BresenhamRasterizer(raster, getColor());
+    }
+
+    @Override
+    protected void rasterizeThinLine(int x1, int y1, int x2, int y2, int c, StrokePattern.Runs runs) {
+        boolean steep = Math.abs(y2 - y1) > Math.abs(x2 - x1);
+        if (steep ? y1 > y2 : x1 > x2) {
+            int tx = x1, ty = y1;
+            x1 = x2; y1 = y2;
+            x2 = tx; y2 = ty;
+        }
+
+        int major = steep ? y2 - y1 : x2 - x1;
+        int minorDelta = steep ? Math.abs(x2 - x1) : Math.abs(y2 - y1);
+        int minorStep = steep ? Integer.signum(x2 - x1) : Integer.signum(y2 - y1);
+        // Math.round rounds halves up, so a tie moves the minor axis only when it is increasing.
+        int tieBias = minorStep > 0 ? 0 : 1;
+
+        double slope = major == 0 ? 0 : (double) minorStep * minorDelta / major;
+        if (!clipSteps(x1, y1, steep ? slope : 1, steep ? 1 : slope, major, 1)) return;
+        dash.reset(runs, stepFrom);
+        for (int i = stepFrom; i <= stepTo; dash.next()) {
+            int last = dash.last(stepTo);
+            if (!dash.isOn()) {
+                i = last + 1;
+                continue;
+            }
+            // Jump straight to the first step of the dash: after i steps the minor axis has moved
+            // floor((2 * minorDelta * i - tieBias + major) / (2 * major)) times.
+            long moves = major == 0 ? 0 : Math.floorDiv(2L * minorDelta * i - tieBias + major, 2L * major);
+            int err = (int) (2L * minorDelta * i - 2L * major * moves);
+            int x = steep ? x1 + (int) (minorStep * moves) : x1 + i;
+            int y = steep ? y1 + i : y1 + (int) (minorStep * moves);
+            for (; i <= last; i++) {
+                raster.setPixel(x, y, c);
+                err += 2 * minorDelta;
+                if (err - tieBias >= major) {
+                    err -= 2 * major;
+                    if (steep) x += minorStep; else y += minorStep;
+                }
+                if (steep) y++; else x++;
+            }
+        }
+    }
+}
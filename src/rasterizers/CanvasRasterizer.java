@@ -1,26 +1,516 @@
 package rasterizers;
 
 import models.*;
+import rasters.ClippedRaster;
+import rasters.CountingRaster;
+import rasters.Raster;
+import rasters.RasterBufferedImage;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 public class CanvasRasterizer {
 
+    // A multiple of 64, so tiles never share a coverage word of a CountingRaster.
+    private static final int TILE_SIZE = 128;
+    // Below this many objects the binning overhead outweighs running tiles in parallel.
+    private static final int PARALLEL_MIN_OBJECTS = 1000;
+    // Mask value around the window of a fill being resolved; neither empty (0), covered (1) nor flooded (2).
+    private static final int WALL = 3;
+
     private Rasterizer rasterizer;
+    private long lastFillReplayNanos;
+    private boolean parallel;
+    private RenderStats stats = new RenderStats();
+    // Time spent per primitive type in the current frame, summed over tiles when they run in parallel.
+    private final LongAdder lineNanos = new LongAdder();
+    private final LongAdder circleNanos = new LongAdder();
+    private final LongAdder fillNanos = new LongAdder();
+    // Scratch rasters for resolveFills, kept between calls: the outlines, and the 0/1 mask being flooded.
+    private RasterBufferedImage outlines, mask;
+    // Counts the pixels of every frame while pixel counting is on; reset per frame.
+    private CountingRaster pixelCounter;
+    // Arguments and scratch of the region pass, which runs on every drag frame and must not allocate.
+    private LineCanvas regionCanvas;
+    private Rectangle regionArea;
+    private Object regionExcluded;
+    private final Runnable regionPass = () -> rasterizeRegion(regionCanvas, regionArea, regionExcluded);
+    private final List<Line> regionLines = new ArrayList<>();
+    private final List<Circle> regionCircles = new ArrayList<>();
+    private final Rectangle objectBounds = new Rectangle();
 
     public CanvasRasterizer(Rasterizer rasterizer) {
         this.rasterizer = rasterizer;
     }
 
+    public void setRasterizer(Rasterizer rasterizer) {
+        this.rasterizer = rasterizer;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public RenderStats getStats() {
+        return stats;
+    }
+
+    // Lets several CanvasRasterizers (e.g. one per background frame) report into the same statistics.
+    public void setStats(RenderStats stats) {
+        this.stats = stats;
+    }
+
+    // Runs one frame and records it; with pixel counting on, the passes draw through a CountingRaster.
+    private void frame(Rectangle region, Runnable pass) {
+        Rasterizer plain = rasterizer;
+        CountingRaster counter = null;
+        if (stats.isPixelCounting()) {
+            Raster raster = plain.getRaster();
+            if (pixelCounter == null) {
+                pixelCounter = new CountingRaster(raster, 0, 0, 0, 0);
+            }
+            counter = pixelCounter;
+            if (region == null) {
+                counter.reset(raster, 0, 0, raster.getWidth(), raster.getHeight());
+            } else {
+                counter.reset(raster, region.x, region.y, region.width, region.height);
+            }
+            rasterizer = plain.forRaster(counter);
+        }
+        lineNanos.reset();
+        circleNanos.reset();
+        fillNanos.reset();
+        long start = System.nanoTime();
+        try {
+            pass.run();
+        } finally {
+            rasterizer = plain;
+            stats.recordFrame(System.nanoTime() - start, lineNanos.sum(), circleNanos.sum(), fillNanos.sum(), counter);
+        }
+    }
+
     public void rasterize(LineCanvas lineCanvas) {
+        frame(null, () -> rasterizeFrame(lineCanvas));
+    }
+
+    private void rasterizeFrame(LineCanvas lineCanvas) {
+        int objects = lineCanvas.getLines().size() + lineCanvas.getCircles().size() + lineCanvas.getFills().size()
+                + lineCanvas.getPolygons().size();
+        if (parallel && objects >= PARALLEL_MIN_OBJECTS && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            rasterizeTiled(lineCanvas);
+            return;
+        }
+
+        Raster raster = rasterizer.getRaster();
+        rasterizePolygons(raster, lineCanvas.getPolygons(), null);
+        long start = System.nanoTime();
         for (Line line : lineCanvas.getLines()) {
             rasterizer.rasterize(line);
         }
+        long linesDone = System.nanoTime();
         for (Circle circle : lineCanvas.getCircles()) {
             rasterizer.rasterize(circle);
         }
+        long circlesDone = System.nanoTime();
         for (Fill fill : lineCanvas.getFills()) {
-            for (Point point : fill.getPoints()) {
-                rasterizer.getRaster().setPixel(point.getX(), point.getY(), fill.getColor());
+            rasterize(raster, fill);
+        }
+        long end = System.nanoTime();
+        lastFillReplayNanos = end - circlesDone;
+        addPhaseTimes(start, linesDone, circlesDone, end);
+    }
+
+    // Filled polygons go first, under the outlines; their time counts as fill time. Null region = all.
+    private void rasterizePolygons(Raster raster, List<Polygon> polygons, Rectangle region) {
+        if (polygons.isEmpty()) return;
+        long start = System.nanoTime();
+        for (int i = 0; i < polygons.size(); i++) {
+            Polygon polygon = polygons.get(i);
+            if (region == null || region.intersects(polygon.getBounds(objectBounds))) {
+                PolygonFiller.fill(raster, polygon);
+            }
+        }
+        fillNanos.add(System.nanoTime() - start);
+    }
+
+    private void addPhaseTimes(long start, long linesDone, long circlesDone, long end) {
+        lineNanos.add(linesDone - start);
+        circleNanos.add(circlesDone - linesDone);
+        fillNanos.add(end - circlesDone);
+    }
+
+    // Struct-of-arrays path: walks the store's columns directly, with no per-shape objects to chase.
+    public void rasterize(PrimitiveStore store) {
+        frame(null, () -> rasterizeFrame(store));
+    }
+
+    private void rasterizeFrame(PrimitiveStore store) {
+        int objects = store.getLineCount() + store.getCircleCount() + store.getFills().size() + store.getPolygons().size();
+        if (parallel && objects >= PARALLEL_MIN_OBJECTS && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            rasterizeTiled(store);
+            return;
+        }
+
+        Raster raster = rasterizer.getRaster();
+        rasterizePolygons(raster, store.getPolygons(), null);
+        long start = System.nanoTime();
+        rasterizeLines(rasterizer, store, null, 0, store.getLineCount());
+        long linesDone = System.nanoTime();
+        rasterizeCircles(rasterizer, store, null, 0, store.getCircleCount());
+        long circlesDone = System.nanoTime();
+        for (Fill fill : store.getFills()) {
+            rasterize(raster, fill);
+        }
+        long end = System.nanoTime();
+        lastFillReplayNanos = end - circlesDone;
+        addPhaseTimes(start, linesDone, circlesDone, end);
+    }
+
+    // Draws the given handles, or handles from..to-1 when handles is null.
+    private static void rasterizeLines(Rasterizer target, PrimitiveStore store, int[] handles, int from, int to) {
+        int[] x1 = store.getLineX1(), y1 = store.getLineY1(), x2 = store.getLineX2(), y2 = store.getLineY2();
+        int[] colors = store.getLineColors(), styles = store.getLineStyles();
+        for (int i = from; i < to; i++) {
+            int h = handles != null ? handles[i] : i;
+            int style = styles[h];
+            if (style == 0) continue;
+            target.rasterizeLine(x1[h], y1[h], x2[h], y2[h], colors[h], PrimitiveStore.lineType(style), PrimitiveStore.lineWidth(style));
+        }
+    }
+
+    private static void rasterizeCircles(Rasterizer target, PrimitiveStore store, int[] handles, int from, int to) {
+        int[] cx = store.getCircleX(), cy = store.getCircleY(), radii = store.getCircleRadii();
+        int[] colors = store.getCircleColors(), styles = store.getCircleStyles();
+        for (int i = from; i < to; i++) {
+            int h = handles != null ? handles[i] : i;
+            int style = styles[h];
+            if (style == 0) continue;
+            target.rasterizeCircle(cx[h], cy[h], radii[h], colors[h], PrimitiveStore.lineType(style), PrimitiveStore.lineWidth(style));
+        }
+    }
+
+    // Rasterizes only the objects whose bounds intersect the region; callers clip the raster to it.
+    public void rasterize(LineCanvas lineCanvas, Rectangle region) {
+        rasterize(lineCanvas, region, null);
+    }
+
+    // Same, but leaves out one line or circle, e.g. the one being dragged.
+    public void rasterize(LineCanvas lineCanvas, Rectangle region, Object excluded) {
+        regionCanvas = lineCanvas;
+        regionArea = region;
+        regionExcluded = excluded;
+        try {
+            frame(region, regionPass);
+        } finally {
+            regionCanvas = null;
+            regionArea = null;
+            regionExcluded = null;
+        }
+    }
+
+    // Candidates come from the canvas' spatial index in drawing order; their current bounds are tested
+    // again, since an object being reshaped is indexed under wider ones.
+    private void rasterizeRegion(LineCanvas lineCanvas, Rectangle region, Object excluded) {
+        rasterizePolygons(rasterizer.getRaster(), lineCanvas.getPolygons(), region);
+        long start = System.nanoTime();
+        lineCanvas.findLinesIn(region, regionLines);
+        for (int i = 0; i < regionLines.size(); i++) {
+            Line line = regionLines.get(i);
+            if (line != excluded && region.intersects(line.getBounds(objectBounds))) {
+                rasterizer.rasterize(line);
+            }
+        }
+        regionLines.clear();
+        long linesDone = System.nanoTime();
+        lineCanvas.findCirclesIn(region, regionCircles);
+        for (int i = 0; i < regionCircles.size(); i++) {
+            Circle circle = regionCircles.get(i);
+            if (circle != excluded && region.intersects(circle.getBounds(objectBounds))) {
+                rasterizer.rasterize(circle);
             }
         }
+        regionCircles.clear();
+        long circlesDone = System.nanoTime();
+        Raster raster = rasterizer.getRaster();
+        List<Fill> fills = lineCanvas.getFills();
+        for (int i = 0; i < fills.size(); i++) {
+            Fill fill = fills.get(i);
+            if (region.intersects(fill.getBounds())) {
+                rasterize(raster, fill);
+            }
+        }
+        addPhaseTimes(start, linesDone, circlesDone, System.nanoTime());
+    }
+
+    // Splits the raster into tiles, bins every object into the tiles its bounds touch and rasterizes the
+    // tiles on the common ForkJoinPool, each through its own clipped view. Bins keep canvas order
+    // (polygons, lines, circles, fills), so every pixel ends up with the same value as in the sequential pass.
+    private void rasterizeTiled(LineCanvas lineCanvas) {
+        Raster raster = rasterizer.getRaster();
+        int cols = (raster.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (raster.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        Tile[] tiles = new Tile[cols * rows];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new Tile();
+        }
+
+        List<Line> lines = lineCanvas.getLines();
+        List<Circle> circles = lineCanvas.getCircles();
+        List<Fill> fills = lineCanvas.getFills();
+        List<Polygon> polygons = lineCanvas.getPolygons();
+        binPolygons(tiles, cols, rows, polygons, raster);
+        for (int i = 0; i < lines.size(); i++) {
+            bin(tiles, cols, rows, lines.get(i).getBounds(), 0, i);
+        }
+        for (int i = 0; i < circles.size(); i++) {
+            bin(tiles, cols, rows, circles.get(i).getBounds(), 1, i);
+        }
+        for (int i = 0; i < fills.size(); i++) {
+            bin(tiles, cols, rows, fills.get(i).getBounds(), 2, i);
+        }
+
+        IntStream.range(0, tiles.length).parallel().forEach(t -> {
+            Tile tile = tiles[t];
+            if (tile.isEmpty()) return;
+            Raster view = new ClippedRaster(raster, (t % cols) * TILE_SIZE, (t / cols) * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            Rasterizer tileRasterizer = rasterizer.forRaster(view);
+            rasterizeTilePolygons(view, polygons, tile);
+            long start = System.nanoTime();
+            for (int i = 0; i < tile.counts[0]; i++) {
+                tileRasterizer.rasterize(lines.get(tile.indices[0][i]));
+            }
+            long linesDone = System.nanoTime();
+            for (int i = 0; i < tile.counts[1]; i++) {
+                tileRasterizer.rasterize(circles.get(tile.indices[1][i]));
+            }
+            long circlesDone = System.nanoTime();
+            for (int i = 0; i < tile.counts[2]; i++) {
+                rasterize(view, fills.get(tile.indices[2][i]));
+            }
+            addPhaseTimes(start, linesDone, circlesDone, System.nanoTime());
+        });
+    }
+
+    // Same tiling for a PrimitiveStore; bounds are computed from the columns like Line/Circle.getBounds().
+    private void rasterizeTiled(PrimitiveStore store) {
+        Raster raster = rasterizer.getRaster();
+        int cols = (raster.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (raster.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        Tile[] tiles = new Tile[cols * rows];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new Tile();
+        }
+
+        int[] x1 = store.getLineX1(), y1 = store.getLineY1(), x2 = store.getLineX2(), y2 = store.getLineY2();
+        int[] lineStyles = store.getLineStyles();
+        for (int h = 0; h < store.getLineCount(); h++) {
+            if (lineStyles[h] == 0) continue;
+            int r = (PrimitiveStore.lineWidth(lineStyles[h]) - 1) / 2;
+            bin(tiles, cols, rows, Math.min(x1[h], x2[h]) - r, Math.min(y1[h], y2[h]) - r,
+                    Math.max(x1[h], x2[h]) + r, Math.max(y1[h], y2[h]) + r, 0, h);
+        }
+        int[] cx = store.getCircleX(), cy = store.getCircleY(), radii = store.getCircleRadii();
+        int[] circleStyles = store.getCircleStyles();
+        for (int h = 0; h < store.getCircleCount(); h++) {
+            if (circleStyles[h] == 0) continue;
+            int extent = radii[h] + (PrimitiveStore.lineWidth(circleStyles[h]) - 1) / 2;
+            bin(tiles, cols, rows, cx[h] - extent, cy[h] - extent, cx[h] + extent, cy[h] + extent, 1, h);
+        }
+        List<Fill> fills = store.getFills();
+        for (int i = 0; i < fills.size(); i++) {
+            bin(tiles, cols, rows, fills.get(i).getBounds(), 2, i);
+        }
+        List<Polygon> polygons = store.getPolygons();
+        binPolygons(tiles, cols, rows, polygons, raster);
+
+        IntStream.range(0, tiles.length).parallel().forEach(t -> {
+            Tile tile = tiles[t];
+            if (tile.isEmpty()) return;
+            Raster view = new ClippedRaster(raster, (t % cols) * TILE_SIZE, (t / cols) * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            Rasterizer tileRasterizer = rasterizer.forRaster(view);
+            rasterizeTilePolygons(view, polygons, tile);
+            long start = System.nanoTime();
+            rasterizeLines(tileRasterizer, store, tile.indices[0], 0, tile.counts[0]);
+            long linesDone = System.nanoTime();
+            rasterizeCircles(tileRasterizer, store, tile.indices[1], 0, tile.counts[1]);
+            long circlesDone = System.nanoTime();
+            for (int i = 0; i < tile.counts[2]; i++) {
+                rasterize(view, fills.get(tile.indices[2][i]));
+            }
+            addPhaseTimes(start, linesDone, circlesDone, System.nanoTime());
+        });
+    }
+
+    // Polygon spans are computed here, once and sequentially, so the tiles only replay them.
+    private static void binPolygons(Tile[] tiles, int cols, int rows, List<Polygon> polygons, Raster raster) {
+        for (int i = 0; i < polygons.size(); i++) {
+            PolygonFiller.spans(polygons.get(i), raster.getWidth(), raster.getHeight());
+            bin(tiles, cols, rows, polygons.get(i).getBounds(), 3, i);
+        }
+    }
+
+    private void rasterizeTilePolygons(Raster view, List<Polygon> polygons, Tile tile) {
+        if (tile.counts[3] == 0) return;
+        long start = System.nanoTime();
+        for (int i = 0; i < tile.counts[3]; i++) {
+            PolygonFiller.fill(view, polygons.get(tile.indices[3][i]));
+        }
+        fillNanos.add(System.nanoTime() - start);
+    }
+
+    private static void bin(Tile[] tiles, int cols, int rows, Rectangle bounds, int kind, int index) {
+        bin(tiles, cols, rows, bounds.x, bounds.y, bounds.x + bounds.width - 1, bounds.y + bounds.height - 1, kind, index);
+    }
+
+    // Inclusive pixel bounds.
+    private static void bin(Tile[] tiles, int cols, int rows, int minX, int minY, int maxX, int maxY, int kind, int index) {
+        int c0 = Math.max(Math.floorDiv(minX, TILE_SIZE), 0);
+        int r0 = Math.max(Math.floorDiv(minY, TILE_SIZE), 0);
+        int c1 = Math.min(Math.floorDiv(maxX, TILE_SIZE), cols - 1);
+        int r1 = Math.min(Math.floorDiv(maxY, TILE_SIZE), rows - 1);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                tiles[r * cols + c].add(kind, index);
+            }
+        }
+    }
+
+    // Per-tile object indices, one list per kind: 0 = lines, 1 = circles, 2 = fills, 3 = polygons.
+    private static class Tile {
+        final int[][] indices = {new int[8], new int[8], new int[8], new int[8]};
+        final int[] counts = new int[4];
+
+        void add(int kind, int index) {
+            if (counts[kind] == indices[kind].length) {
+                indices[kind] = Arrays.copyOf(indices[kind], counts[kind] * 2);
+            }
+            indices[kind][counts[kind]++] = index;
+        }
+
+        boolean isEmpty() {
+            return counts[0] == 0 && counts[1] == 0 && counts[2] == 0 && counts[3] == 0;
+        }
+    }
+
+    /**
+     * Recomputes the stale seeded fills of the canvas. Each fill is flooded inside a window around its
+     * old extent and seed: the lines and circles the spatial index finds there are drawn into a scratch
+     * raster with this rasterizer, so regions end exactly at the pixels the outlines cover, and the window
+     * is copied into a mask reduced to covered/empty with a wall around it. A region that reaches the wall
+     * may continue outside, so the window grows and the fill is flooded again. The cost follows the area of
+     * the stale fills, not the size of the scene. Returns the area where fill pixels may have changed (old
+     * and new extent of every recomputed fill), or null if nothing was stale.
+     * Call it on the thread that edits the canvas, before rendering.
+     */
+    public Rectangle resolveFills(LineCanvas lineCanvas) {
+        if (!lineCanvas.hasStaleFills()) return null;
+        Raster raster = rasterizer.getRaster();
+        int width = raster.getWidth(), height = raster.getHeight();
+        if (outlines == null || outlines.getWidth() != width || outlines.getHeight() != height) {
+            outlines = new RasterBufferedImage(width, height);
+            mask = new RasterBufferedImage(width, height);
+        }
+        Rasterizer outlineRasterizer = rasterizer.forRaster(outlines);
+        Rectangle all = new Rectangle(0, 0, width, height);
+        Rectangle damage = null;
+        for (Fill fill : lineCanvas.getFills()) {
+            if (!fill.isStale()) continue;
+            Rectangle before = fill.getBounds();
+            int x = fill.getSeedX(), y = fill.getSeedY();
+            int[] spans = new int[0];
+            if (all.contains(x, y)) {
+                Rectangle window = new Rectangle(x, y, 1, 1);
+                if (!before.isEmpty()) window.add(before);
+                window.grow(1, 1);
+                window = window.intersection(all);
+                while (true) {
+                    spans = flood(lineCanvas, outlineRasterizer, window, x, y);
+                    if (window.equals(all) || !reachesWall(spans, window, all)) break;
+                    window.grow(Math.max(window.width, window.height), Math.max(window.width, window.height));
+                    window = window.intersection(all);
+                }
+            }
+            fill.setSpans(spans);
+            damage = union(union(damage, before), fill.getBounds());
+        }
+        return damage;
+    }
+
+    // The region around (x, y) with everything outside the window treated as a wall.
+    private int[] flood(LineCanvas lineCanvas, Rasterizer outlineRasterizer, Rectangle window, int x, int y) {
+        // Cleared to 0; no outline pixel is 0, because an argb of 0 is drawn in the current color.
+        outlines.setClip(window.x, window.y, window.width, window.height);
+        outlines.fillRect(window.x, window.y, window.width, window.height, 0);
+        for (Line line : lineCanvas.findLinesIn(window)) {
+            outlineRasterizer.rasterize(line);
+        }
+        for (Circle circle : lineCanvas.findCirclesIn(window)) {
+            outlineRasterizer.rasterize(circle);
+        }
+        outlines.clearClip();
+
+        int width = outlines.getWidth();
+        int[] covered = outlines.getPixels();
+        int[] flooded = mask.getPixels();
+        for (int row = window.y; row < window.y + window.height; row++) {
+            for (int i = row * width + window.x, end = i + window.width; i < end; i++) {
+                flooded[i] = covered[i] != 0 ? 1 : 0;
+            }
+        }
+        // The wall: one pixel around the window, where it is inside the raster. The flood only ever reads
+        // mask pixels inside it, so whatever earlier floods left outside does not matter.
+        int left = window.x - 1, right = window.x + window.width;
+        int top = window.y - 1, bottom = window.y + window.height;
+        mask.fillSpan(top, left, right, WALL);
+        mask.fillSpan(bottom, left, right, WALL);
+        for (int row = window.y; row < bottom; row++) {
+            mask.setPixel(left, row, WALL);
+            mask.setPixel(right, row, WALL);
+        }
+
+        SpanList spans = new SpanList();
+        ScanlineFill.floodFill(mask, x, y, mask.getPixel(x, y), 2, spans);
+        return spans.toArray();
+    }
+
+    // Whether a span lies on the window's border next to its wall, i.e. the region may continue outside.
+    private static boolean reachesWall(int[] spans, Rectangle window, Rectangle all) {
+        int top = window.y, bottom = window.y + window.height - 1;
+        int left = window.x, right = window.x + window.width - 1;
+        boolean wallTop = top > all.y, wallBottom = bottom < all.y + all.height - 1;
+        boolean wallLeft = left > all.x, wallRight = right < all.x + all.width - 1;
+        for (int i = 0; i < spans.length; i += 3) {
+            if ((wallTop && spans[i] == top) || (wallBottom && spans[i] == bottom)
+                    || (wallLeft && spans[i + 1] == left) || (wallRight && spans[i + 2] == right)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Rectangle union(Rectangle a, Rectangle b) {
+        if (b.isEmpty()) return a;
+        return a == null ? new Rectangle(b) : a.union(b);
+    }
+
+    private void rasterize(Raster raster, Fill fill) {
+        int color = fill.getColor();
+        int[] spans = fill.getSpans();
+        for (int i = 0; i < spans.length; i += 3) {
+            raster.fillSpan(spans[i], spans[i + 1], spans[i + 2], color);
+        }
+    }
+
+    public long getLastFillReplayNanos() {
+        return lastFillReplayNanos;
     }
 }
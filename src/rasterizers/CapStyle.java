@@ -0,0 +1,7 @@
+package rasterizers;
+
+public enum CapStyle {
+    BUTT,
+    ROUND,
+    SQUARE
+}
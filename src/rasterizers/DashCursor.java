@@ -0,0 +1,63 @@
+package rasterizers;
+
+import models.StrokePattern;
+
+/**
+ * Walks the runs of a compiled stroke pattern along a line. Only reset divides; moving on to the next run
+ * is an addition, so a loop can draw a whole dash and jump over a whole gap at once. Without a pattern the
+ * cursor sits on one endless dash.
+ */
+public class DashCursor {
+
+    private StrokePattern.Runs runs;
+    private int run;
+    // First and last step of the current run; the run may begin before the first visible step.
+    private long runStart;
+    private long runEnd;
+
+    // Places the cursor on the run covering step index.
+    public void reset(StrokePattern.Runs runs, long index) {
+        this.runs = runs;
+        if (runs == null) {
+            run = 0;
+            runStart = Long.MIN_VALUE / 2;
+            runEnd = Long.MAX_VALUE / 2;
+            return;
+        }
+        int position = runs.position(index);
+        run = runs.runAt(position);
+        runStart = index - (position - runs.runStart(run));
+        runEnd = runStart + runs.length(run) - 1;
+    }
+
+    public void next() {
+        if (runs == null) return;
+        run = runs.next(run);
+        runStart = runEnd + 1;
+        runEnd = runStart + runs.length(run) - 1;
+    }
+
+    // Moves forward to the run covering index, which must not lie before the current run.
+    public void moveTo(long index) {
+        while (index > runEnd) next();
+    }
+
+    public boolean isOn() {
+        return runs == null || runs.isOn(run);
+    }
+
+    // First step after the current run.
+    public long nextStart() {
+        return runEnd + 1;
+    }
+
+    // First step of the current run, but not before min.
+    public int first(int min) {
+        return (int) Math.max(runStart, min);
+    }
+
+    // Last step of the current run, but not after max.
+    public int last(int max) {
+        return (int) Math.min(runEnd, max);
+    }
+}
@@ -0,0 +1,128 @@
+package rasterizers;
+
+import models.FillRule;
+import models.Polygon;
+import models.SpanList;
+import rasters.Raster;
+
+import java.util.Arrays;
+
+/**
+ * Edge-table scanline polygon filler. Edges are sorted by their top row; each row moves the edges that start
+ * there into the active edge table, drops the ones that ended, sorts the active crossings by x and emits one
+ * span per inside interval. A pixel is inside when its center is, so polygons sharing an edge do not overlap.
+ * Cost is per row and per active edge, independent of the filled area.
+ */
+public class PolygonFiller {
+
+    // Fills the polygon straight into the raster.
+    public static void fill(Raster raster, Polygon polygon) {
+        int[] spans = spans(polygon, raster.getWidth(), raster.getHeight());
+        int color = polygon.getColor();
+        for (int i = 0; i < spans.length; i += 3) {
+            raster.fillSpan(spans[i], spans[i + 1], spans[i + 2], color);
+        }
+    }
+
+    // The polygon's spans inside a width x height raster, computed on first use and kept in the polygon.
+    // They cover the whole raster rather than its current clip, so every region redraw can replay them.
+    public static int[] spans(Polygon polygon, int width, int height) {
+        int[] spans = polygon.getSpans(width, height);
+        if (spans == null) {
+            SpanList list = new SpanList();
+            scan(polygon, width, height, list);
+            spans = list.toArray();
+            polygon.setSpans(spans, width, height);
+        }
+        return spans;
+    }
+
+    // Only rows 0..height-1 are scanned and spans are cut to columns 0..width-1, so a polygon reaching far
+    // off the raster costs no more than the part on it.
+    public static void scan(Polygon polygon, int width, int height, SpanList out) {
+        int n = polygon.getVertexCount();
+        // Edge columns; horizontal edges never cross a pixel center row and are left out.
+        int[] top = new int[n], bottom = new int[n], dir = new int[n];
+        int[] x0 = new int[n], dx = new int[n];
+        long[] order = new long[n];
+        int edges = 0;
+        for (int i = 0; i < n; i++) {
+            int ax = polygon.getX(i), ay = polygon.getY(i);
+            int bx = polygon.getX((i + 1) % n), by = polygon.getY((i + 1) % n);
+            if (ay == by) continue;
+            int e = edges++;
+            dir[e] = ay < by ? 1 : -1;
+            if (ay > by) {
+                int t = ax; ax = bx; bx = t;
+                t = ay; ay = by; by = t;
+            }
+            top[e] = ay;
+            bottom[e] = by;
+            x0[e] = ax;
+            dx[e] = bx - ax;
+            order[e] = (long) ay << 32 | e;
+        }
+        if (edges == 0 || width <= 0 || height <= 0) return;
+        Arrays.sort(order, 0, edges);
+
+        int[] active = new int[edges];
+        double[] xs = new double[edges];
+        int activeCount = 0;
+        int next = 0;
+        boolean evenOdd = polygon.getRule() == FillRule.EVEN_ODD;
+        // Row y samples at y + 0.5, which lies inside an edge spanning top..bottom for top <= y < bottom.
+        // Starting at row 0 at the earliest takes in every edge that began above it at once.
+        for (int y = Math.max((int) (order[0] >> 32), 0); y < height && (next < edges || activeCount > 0); y++) {
+            while (next < edges && (int) (order[next] >> 32) <= y) {
+                active[activeCount++] = (int) order[next++];
+            }
+            int kept = 0;
+            for (int i = 0; i < activeCount; i++) {
+                if (bottom[active[i]] > y) active[kept++] = active[i];
+            }
+            activeCount = kept;
+            if (activeCount == 0) {
+                // Jump over empty rows between disjoint parts of the outline.
+                if (next < edges) y = (int) (order[next] >> 32) - 1;
+                continue;
+            }
+
+            // Crossings at the row center, insertion-sorted: the order barely changes from row to row.
+            // Dividing last keeps a crossing that lands exactly on a pixel center exact.
+            for (int i = 0; i < activeCount; i++) {
+                int e = active[i];
+                double x = x0[e] + (y + 0.5 - top[e]) * dx[e] / (bottom[e] - top[e]);
+                int j = i;
+                while (j > 0 && xs[j - 1] > x) {
+                    xs[j] = xs[j - 1];
+                    active[j] = active[j - 1];
+                    j--;
+                }
+                xs[j] = x;
+                active[j] = e;
+            }
+
+            if (evenOdd) {
+                for (int i = 0; i + 1 < activeCount; i += 2) {
+                    emit(out, y, xs[i], xs[i + 1], width);
+                }
+            } else {
+                int winding = 0;
+                double start = 0;
+                for (int i = 0; i < activeCount; i++) {
+                    int before = winding;
+                    winding += dir[active[i]];
+                    if (before == 0) start = xs[i];
+                    else if (winding == 0) emit(out, y, start, xs[i], width);
+                }
+            }
+        }
+    }
+
+    // Pixels whose centers lie in [left, right), within columns 0..width-1.
+    private static void emit(SpanList out, int y, double left, double right, int width) {
+        int x0 = (int) Math.max(Math.ceil(left - 0.5), 0);
+        int x1 = (int) Math.min(Math.ceil(right - 0.5) - 1, width - 1);
+        if (x0 <= x1) out.add(y, x0, x1);
+    }
+}
@@ -2,6 +2,7 @@ package rasterizers;
 
 import models.Circle;
 import models.Line;
+import models.LineType;
 import rasters.Raster;
 
 import java.awt.*;
@@ -11,5 +12,10 @@ public interface Rasterizer {
     Color getColor();
     void rasterize(Line line);
     void rasterize(Circle circle);
+    // Object-free entry points for struct-of-arrays stores; an argb of 0 draws with the current color.
+    void rasterizeLine(int x1, int y1, int x2, int y2, int argb, LineType lineType, int lineWidth);
+    void rasterizeCircle(int cx, int cy, int radius, int argb, LineType lineType, int lineWidth);
     Raster getRaster();
+    // Same kind of rasterizer with the same color, drawing into another raster.
+    Rasterizer forRaster(Raster raster);
 }
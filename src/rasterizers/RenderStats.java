@@ -0,0 +1,136 @@
+package rasterizers;
+
+import rasters.CountingRaster;
+
+/**
+ * Timings and pixel counts of the frames a CanvasRasterizer draws. Every full or region redraw is a frame:
+ * its time goes into a ring buffer of the last {@link #HISTORY} frames and is split into time spent on
+ * lines, circles and fills. Pixel counts need a counting raster between the rasterizer and the image, so
+ * they are only collected while pixel counting is switched on. Render threads and the EDT record into the
+ * same instance, hence the synchronization.
+ */
+public class RenderStats implements RenderStatsMBean {
+
+    public static final int HISTORY = 120;
+
+    private final long[] frameNanos = new long[HISTORY];
+    private long frameCount;
+    private long lineNanos, circleNanos, fillNanos;
+    private long pixelsWritten = -1, uniquePixels = -1;
+    private long totalPixelsWritten;
+    private volatile boolean pixelCounting;
+
+    public synchronized void recordFrame(long nanos, long lineNanos, long circleNanos, long fillNanos, CountingRaster counter) {
+        frameNanos[(int) (frameCount++ % HISTORY)] = nanos;
+        this.lineNanos = lineNanos;
+        this.circleNanos = circleNanos;
+        this.fillNanos = fillNanos;
+        if (counter != null) {
+            pixelsWritten = counter.getPixelsWritten();
+            uniquePixels = counter.getUniquePixels();
+            totalPixelsWritten += pixelsWritten;
+        } else {
+            pixelsWritten = uniquePixels = -1;
+        }
+    }
+
+    // Frame times in nanoseconds, oldest first.
+    public synchronized long[] getFrameTimes() {
+        int n = (int) Math.min(frameCount, HISTORY);
+        long[] times = new long[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = frameNanos[(int) ((frameCount - n + i) % HISTORY)];
+        }
+        return times;
+    }
+
+    @Override
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public synchronized double getLastFrameMillis() {
+        return frameCount == 0 ? 0 : frameNanos[(int) ((frameCount - 1) % HISTORY)] / 1e6;
+    }
+
+    @Override
+    public synchronized double getAverageFrameMillis() {
+        int n = (int) Math.min(frameCount, HISTORY);
+        if (n == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < n; i++) sum += frameNanos[i];
+        return sum / 1e6 / n;
+    }
+
+    @Override
+    public synchronized double getMaxFrameMillis() {
+        long max = 0;
+        for (int i = 0; i < Math.min(frameCount, HISTORY); i++) max = Math.max(max, frameNanos[i]);
+        return max / 1e6;
+    }
+
+    @Override
+    public synchronized double getLineMillis() {
+        return lineNanos / 1e6;
+    }
+
+    @Override
+    public synchronized double getCircleMillis() {
+        return circleNanos / 1e6;
+    }
+
+    @Override
+    public synchronized double getFillMillis() {
+        return fillNanos / 1e6;
+    }
+
+    // -1 while pixel counting is off.
+    @Override
+    public synchronized long getPixelsWritten() {
+        return pixelsWritten;
+    }
+
+    @Override
+    public synchronized long getUniquePixels() {
+        return uniquePixels;
+    }
+
+    // Writes per distinct pixel in the last frame; 1.0 means nothing was drawn twice.
+    @Override
+    public synchronized double getOverdraw() {
+        return uniquePixels > 0 ? (double) pixelsWritten / uniquePixels : 0;
+    }
+
+    @Override
+    public synchronized long getTotalPixelsWritten() {
+        return totalPixelsWritten;
+    }
+
+    @Override
+    public boolean isPixelCounting() {
+        return pixelCounting;
+    }
+
+    @Override
+    public void setPixelCounting(boolean pixelCounting) {
+        this.pixelCounting = pixelCounting;
+    }
+
+    @Override
+    public synchronized void reset() {
+        frameCount = 0;
+        lineNanos = circleNanos = fillNanos = 0;
+        pixelsWritten = uniquePixels = -1;
+        totalPixelsWritten = 0;
+    }
+
+    @Override
+    public String toString() {
+        String pixels = getPixelsWritten() < 0 ? "pixel counting off"
+                : String.format("pixels %d (%d unique, overdraw %.2f)", getPixelsWritten(), getUniquePixels(), getOverdraw());
+        return String.format("Frames: %d, last %.2f ms, avg %.2f ms, max %.2f ms (last %d); lines %.2f ms, circles %.2f ms, fills %.2f ms; %s",
+                getFrameCount(), getLastFrameMillis(), getAverageFrameMillis(), getMaxFrameMillis(), Math.min(getFrameCount(), HISTORY),
+                getLineMillis(), getCircleMillis(), getFillMillis(), pixels);
+    }
+}
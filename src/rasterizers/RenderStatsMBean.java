@@ -0,0 +1,19 @@
+package rasterizers;
+
+// JMX view of RenderStats; times are in milliseconds.
+public interface RenderStatsMBean {
+    long getFrameCount();
+    double getLastFrameMillis();
+    double getAverageFrameMillis();
+    double getMaxFrameMillis();
+    double getLineMillis();
+    double getCircleMillis();
+    double getFillMillis();
+    long getPixelsWritten();
+    long getUniquePixels();
+    double getOverdraw();
+    long getTotalPixelsWritten();
+    boolean isPixelCounting();
+    void setPixelCounting(boolean pixelCounting);
+    void reset();
+}
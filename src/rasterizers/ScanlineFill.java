@@ -0,0 +1,85 @@
+package rasterizers;
+
+import models.SpanList;
+import rasters.Raster;
+
+import java.util.Arrays;
+
+public class ScanlineFill {
+
+    /**
+     * Scanline seed fill. Each stack entry (x1, x2, y, dy) is a run on row y whose parent row was y - dy;
+     * every run found is filled as one span and recorded in filledSpans.
+     */
+    public static void floodFill(Raster raster, int x, int y, int targetColor, int replacementColor, SpanList filledSpans) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        SpanStack stack = new SpanStack();
+        stack.push(x, x, y, 1);
+        stack.push(x, x, y - 1, -1);
+
+        while (!stack.isEmpty()) {
+            stack.pop();
+            int x1 = stack.x1;
+            int x2 = stack.x2;
+            int sy = stack.y;
+            int dy = stack.dy;
+            if (sy < 0 || sy >= height) continue;
+
+            int sx = x1;
+            if (raster.getPixel(sx, sy) == targetColor) {
+                while (sx > 0 && raster.getPixel(sx - 1, sy) == targetColor) {
+                    sx--;
+                }
+                if (sx < x1) {
+                    stack.push(sx, x1 - 1, sy - dy, -dy);
+                }
+            }
+            while (x1 <= x2) {
+                while (x1 < width && raster.getPixel(x1, sy) == targetColor) {
+                    x1++;
+                }
+                if (x1 > sx) {
+                    raster.fillSpan(sy, sx, x1 - 1, replacementColor);
+                    filledSpans.add(sy, sx, x1 - 1);
+                    stack.push(sx, x1 - 1, sy + dy, dy);
+                    if (x1 - 1 > x2) {
+                        stack.push(x2 + 1, x1 - 1, sy - dy, -dy);
+                    }
+                }
+                x1++;
+                while (x1 < x2 && raster.getPixel(x1, sy) != targetColor) {
+                    x1++;
+                }
+                sx = x1;
+            }
+        }
+    }
+
+    private static class SpanStack {
+        private int[] data = new int[256];
+        private int top;
+        int x1, x2, y, dy;
+
+        void push(int x1, int x2, int y, int dy) {
+            if (top + 4 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[top++] = x1;
+            data[top++] = x2;
+            data[top++] = y;
+            data[top++] = dy;
+        }
+
+        void pop() {
+            dy = data[--top];
+            y = data[--top];
+            x2 = data[--top];
+            x1 = data[--top];
+        }
+
+        boolean isEmpty() {
+            return top == 0;
+        }
+    }
+}
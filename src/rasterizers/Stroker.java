@@ -0,0 +1,119 @@
+package rasterizers;
+
+import rasters.Raster;
+
+import java.awt.Rectangle;
+
+/**
+ * Converts thick strokes into horizontal spans so that every covered pixel is written exactly once.
+ * A stroke of radius r around a segment is a convex shape, so each scanline crosses it in a single span.
+ */
+public class Stroker {
+
+    private static final double EPS = 1e-9;
+
+    private final Raster raster;
+    private final Rectangle clip = new Rectangle();
+    // Body interval of the current row, reused for every row.
+    private final double[] body = new double[2];
+
+    public Stroker(Raster raster) {
+        this.raster = raster;
+    }
+
+    public void strokeSegment(double x1, double y1, double x2, double y2, int radius, CapStyle cap, int color) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double len2 = dx * dx + dy * dy;
+
+        if (len2 == 0) {
+            if (cap == CapStyle.ROUND) {
+                fillDisc((int) Math.round(x1), (int) Math.round(y1), radius, color);
+            } else if (cap == CapStyle.SQUARE) {
+                int cx = (int) Math.round(x1);
+                int cy = (int) Math.round(y1);
+                raster.fillRect(cx - radius, cy - radius, 2 * radius + 1, 2 * radius + 1, color);
+            }
+            return;
+        }
+
+        double len = Math.sqrt(len2);
+        // Parameter range along the segment; square caps extend it by the radius on both ends.
+        double ext = cap == CapStyle.SQUARE ? radius / len : 0;
+        double tMin = -ext;
+        double tMax = 1 + ext;
+
+        int yStart = (int) Math.floor(Math.min(y1, y2) - radius);
+        int yEnd = (int) Math.ceil(Math.max(y1, y2) + radius);
+        raster.getClipBounds(clip);
+        yStart = Math.max(yStart, clip.y);
+        yEnd = Math.min(yEnd, clip.y + clip.height - 1);
+
+        for (int y = yStart; y <= yEnd; y++) {
+            double lo = Double.POSITIVE_INFINITY;
+            double hi = Double.NEGATIVE_INFINITY;
+
+            // Body: tMin <= t(x) <= tMax and -r <= s(x) <= r, both linear in x.
+            double ry = y - y1;
+            body[0] = Double.NEGATIVE_INFINITY;
+            body[1] = Double.POSITIVE_INFINITY;
+            if (clampLinear(body, dx / len2, ry * dy / len2 - x1 * dx / len2, tMin, tMax)
+                    && clampLinear(body, dy / len, -ry * dx / len - x1 * dy / len, -radius, radius)) {
+                lo = body[0];
+                hi = body[1];
+            }
+
+            if (cap == CapStyle.ROUND) {
+                double h1 = discHalfWidth(y - y1, radius);
+                if (h1 >= 0) {
+                    lo = Math.min(lo, x1 - h1);
+                    hi = Math.max(hi, x1 + h1);
+                }
+                double h2 = discHalfWidth(y - y2, radius);
+                if (h2 >= 0) {
+                    lo = Math.min(lo, x2 - h2);
+                    hi = Math.max(hi, x2 + h2);
+                }
+            }
+
+            if (lo <= hi) {
+                raster.fillSpan(y, (int) Math.ceil(lo - EPS), (int) Math.floor(hi + EPS), color);
+            }
+        }
+    }
+
+    public void fillDisc(int cx, int cy, int radius, int color) {
+        int r2 = radius * radius;
+        raster.getClipBounds(clip);
+        int dyFrom = Math.max(-radius, clip.y - cy);
+        int dyTo = Math.min(radius, clip.y + clip.height - 1 - cy);
+        for (int dy = dyFrom; dy <= dyTo; dy++) {
+            int half = (int) Math.sqrt(r2 - dy * dy);
+            raster.fillSpan(cy + dy, cx - half, cx + half, color);
+        }
+    }
+
+    /**
+     * Intersects the interval with {x : lo <= a * x + b <= hi}. Returns false when the result is empty.
+     */
+    private static boolean clampLinear(double[] interval, double a, double b, double lo, double hi) {
+        if (Math.abs(a) < EPS) {
+            return b >= lo - EPS && b <= hi + EPS;
+        }
+        double from = (lo - b) / a;
+        double to = (hi - b) / a;
+        if (from > to) {
+            double t = from;
+            from = to;
+            to = t;
+        }
+        interval[0] = Math.max(interval[0], from);
+        interval[1] = Math.min(interval[1], to);
+        return interval[0] <= interval[1];
+    }
+
+    private static double discHalfWidth(double dy, int radius) {
+        double rest = (double) radius * radius - dy * dy;
+        return rest < 0 ? -1 : Math.sqrt(rest);
+    }
+}
@@ -3,6 +3,7 @@ package rasterizers;
 import models.Circle;
 import models.Line;
 import models.LineType;
+import models.StrokePattern;
 import rasters.Raster;
 
 import java.awt.*;
@@ -10,11 +11,23 @@ import java.awt.*;
 public class TrivialRasterizer implements Rasterizer {
 
     private Color defaultColor;
-    private Raster raster;
+    protected final Raster raster;
+    private final Stroker stroker;
+    // Reused for the raster's clip; clipSteps leaves its result in stepFrom..stepTo.
+    protected final Rectangle clip = new Rectangle();
+    protected int stepFrom, stepTo;
+    protected final DashCursor dash = new DashCursor();
+    private double clipT0, clipT1;
 
     public TrivialRasterizer(Raster raster, Color defaultColor) {
+        this(raster, defaultColor, new Stroker(raster));
+    }
+
+    // For subclasses that turn thick strokes into pixels differently.
+    protected TrivialRasterizer(Raster raster, Color defaultColor, Stroker stroker) {
         this.raster = raster;
         this.defaultColor = defaultColor;
+        this.stroker = stroker;
     }
 
     @Override
@@ -32,47 +45,89 @@ public class TrivialRasterizer implements Rasterizer {
         return raster;
     }
 
+    @Override
+    public Rasterizer forRaster(Raster raster) {
+        return new TrivialRasterizer(raster, defaultColor);
+    }
+
     private void drawFilledCircle(int centerX, int centerY, int radius, int color) {
-        int width = raster.getWidth();
-        int height = raster.getHeight();
-        for (int y = -radius; y <= radius; y++) {
-            for (int x = -radius; x <= radius; x++) {
-                if (x * x + y * y <= radius * radius) {
-                    int px = centerX + x;
-                    int py = centerY + y;
-                    if (px >= 0 && px < width && py >= 0 && py < height) {
-                        raster.setPixel(px, py, color);
-                    }
-                }
-            }
+        if (radius == 0) {
+            raster.setPixel(centerX, centerY, color);
+        } else {
+            stroker.fillDisc(centerX, centerY, radius, color);
         }
     }
 
     @Override
     public void rasterize(Line line) {
-        Color color = line.getColor() != null ? line.getColor() : defaultColor;
-        int c = color.getRGB();
-        int lineWidth = line.getLineWidth();
+        rasterizeLine(line.getP1().getX(), line.getP1().getY(), line.getP2().getX(), line.getP2().getY(),
+                argb(line.getColor()), line.getLineType(), line.getLineWidth());
+    }
+
+    @Override
+    public void rasterizeLine(int x1, int y1, int x2, int y2, int argb, LineType lineType, int lineWidth) {
+        int c = argb != 0 ? argb : defaultColor.getRGB();
         int radius = (lineWidth - 1) / 2;
+        StrokePattern.Runs runs = lineType.getPattern().compile(lineWidth);
 
-        int x1 = line.getP1().getX();
-        int y1 = line.getP1().getY();
-        int x2 = line.getP2().getX();
-        int y2 = line.getP2().getY();
+        if (radius > 0) {
+            strokeThickLine(x1, y1, x2, y2, radius, c, runs);
+        } else {
+            rasterizeThinLine(x1, y1, x2, y2, c, runs);
+        }
+    }
 
-        final int DOT_INTERVAL = 4 * lineWidth;
-        final int DASH_INTERVAL = 10 * lineWidth;
-        int segmentIndex = 0;
+    protected static int argb(Color color) {
+        return color != null ? color.getRGB() : 0;
+    }
 
+    /**
+     * Liang–Barsky clipping in step space: narrows the steps 0..steps of a line that starts at (x, y) and
+     * moves (ux, uy) per step to the ones that can land within margin pixels of the raster's clip.
+     * The range is left in stepFrom..stepTo; returns false when no step is visible. Callers still start
+     * pattern counting at step 0, so dots and dashes keep their phase however much is cut off.
+     */
+    protected boolean clipSteps(double x, double y, double ux, double uy, int steps, double margin) {
+        raster.getClipBounds(clip);
+        clipT0 = 0;
+        clipT1 = steps;
+        if (!clipEdge(-ux, x - (clip.x - margin)) || !clipEdge(ux, clip.x + clip.width - 1 + margin - x)
+                || !clipEdge(-uy, y - (clip.y - margin)) || !clipEdge(uy, clip.y + clip.height - 1 + margin - y)) {
+            return false;
+        }
+        stepFrom = (int) Math.ceil(clipT0);
+        stepTo = (int) Math.floor(clipT1);
+        return stepFrom <= stepTo;
+    }
+
+    // One Liang–Barsky boundary, p * t <= q.
+    private boolean clipEdge(double p, double q) {
+        if (p == 0) return q >= 0;
+        double t = q / p;
+        if (p < 0) clipT0 = Math.max(clipT0, t); else clipT1 = Math.min(clipT1, t);
+        return clipT0 <= clipT1;
+    }
+
+    // One-pixel-wide line core. Pattern steps are counted along the major axis from the lower endpoint;
+    // each dash is drawn in one go and each gap skipped in one jump.
+    protected void rasterizeThinLine(int x1, int y1, int x2, int y2, int c, StrokePattern.Runs runs) {
         int dx = x2 - x1;
         int dy = y2 - y1;
 
         if (dx == 0) {
             int ya = Math.min(y1, y2);
             int yb = Math.max(y1, y2);
-            for (int y = ya; y <= yb; y++) {
-                if (shouldSkipPixel(line.getLineType(), segmentIndex++, DOT_INTERVAL, DASH_INTERVAL)) continue;
-                drawFilledCircle(x1, y, radius, c);
+            if (!clipSteps(x1, ya, 0, 1, yb - ya, 0)) return;
+            dash.reset(runs, stepFrom);
+            for (int i = stepFrom; i <= stepTo; dash.next()) {
+                int last = dash.last(stepTo);
+                if (!dash.isOn()) {
+                    i = last + 1;
+                    continue;
+                }
+                for (; i <= last; i++) {
+                    raster.setPixel(x1, ya + i, c);
+                }
             }
             return;
         }
@@ -90,10 +145,19 @@ public class TrivialRasterizer implements Rasterizer {
                 k = dy / (double) dx;
                 q = y1 - k * x1;
             }
-            for (int x = x1; x <= x2; x++) {
-                int y = (int) Math.round(k * x + q);
-                if (shouldSkipPixel(line.getLineType(), segmentIndex++, DOT_INTERVAL, DASH_INTERVAL)) continue;
-                drawFilledCircle(x, y, radius, c);
+            // A margin of one pixel covers the rounding of the minor coordinate.
+            if (!clipSteps(x1, y1, 1, k, x2 - x1, 1)) return;
+            dash.reset(runs, stepFrom);
+            for (int i = stepFrom; i <= stepTo; dash.next()) {
+                int last = dash.last(stepTo);
+                if (!dash.isOn()) {
+                    i = last + 1;
+                    continue;
+                }
+                for (; i <= last; i++) {
+                    int x = x1 + i;
+                    raster.setPixel(x, (int) Math.round(k * x + q), c);
+                }
             }
         } else {
             if (y1 > y2) {
@@ -105,35 +169,80 @@ public class TrivialRasterizer implements Rasterizer {
                 k = dy / (double) dx;
                 q = y1 - k * x1;
             }
-            for (int y = y1; y <= y2; y++) {
-                int x = (int) Math.round((y - q) / k);
-                if (shouldSkipPixel(line.getLineType(), segmentIndex++, DOT_INTERVAL, DASH_INTERVAL)) continue;
-                drawFilledCircle(x, y, radius, c);
+            if (!clipSteps(x1, y1, 1 / k, 1, y2 - y1, 1)) return;
+            dash.reset(runs, stepFrom);
+            for (int i = stepFrom; i <= stepTo; dash.next()) {
+                int last = dash.last(stepTo);
+                if (!dash.isOn()) {
+                    i = last + 1;
+                    continue;
+                }
+                for (; i <= last; i++) {
+                    int y = y1 + i;
+                    raster.setPixel((int) Math.round((y - q) / k), y, c);
+                }
             }
         }
     }
 
+    // Thick lines go through the stroker: each dash becomes one round-capped segment; a one-step dash is a disc.
+    // Steps are counted along the major axis from the lower endpoint, same as the thin path.
+    private void strokeThickLine(int x1, int y1, int x2, int y2, int radius, int color, StrokePattern.Runs runs) {
+        boolean shallow = Math.abs(x2 - x1) >= Math.abs(y2 - y1) && x1 != x2;
+        if (shallow ? x1 > x2 : y1 > y2) {
+            int tx = x1, ty = y1;
+            x1 = x2; y1 = y2;
+            x2 = tx; y2 = ty;
+        }
+        int steps = shallow ? x2 - x1 : y2 - y1;
+
+        if (runs == null || steps == 0) {
+            stroker.strokeSegment(x1, y1, x2, y2, radius, CapStyle.ROUND, color);
+            return;
+        }
+
+        double sx = (x2 - x1) / (double) steps;
+        double sy = (y2 - y1) / (double) steps;
+        // Pieces are placed from step 0 as before; only the ones that can reach the clip are visited.
+        if (!clipSteps(x1, y1, sx, sy, steps, radius + 1)) return;
+
+        dash.reset(runs, stepFrom);
+        for (int from = dash.first(0); from <= stepTo; dash.next(), from = dash.first(0)) {
+            if (!dash.isOn()) continue;
+            int to = dash.last(steps);
+            stroker.strokeSegment(x1 + sx * from, y1 + sy * from, x1 + sx * to, y1 + sy * to, radius, CapStyle.ROUND, color);
+        }
+    }
+
     @Override
     public void rasterize(Circle circle) {
-        Color color = circle.getColor() != null ? circle.getColor() : defaultColor;
-        int c = color.getRGB();
-        int lineWidth = circle.getLineWidth();
-
-        int x0 = circle.getCenter().getX();
-        int y0 = circle.getCenter().getY();
-        int r = circle.getRadius();
-        LineType lineType = circle.getLineType();
+        rasterizeCircle(circle.getCenter().getX(), circle.getCenter().getY(), circle.getRadius(),
+                argb(circle.getColor()), circle.getLineType(), circle.getLineWidth());
+    }
 
-        final int DOT_INTERVAL = 4 * lineWidth;
-        final int DASH_INTERVAL = 10 * lineWidth;
+    @Override
+    public void rasterizeCircle(int x0, int y0, int r, int argb, LineType lineType, int lineWidth) {
+        int c = argb != 0 ? argb : defaultColor.getRGB();
+        StrokePattern.Runs runs = lineType.getPattern().compile(lineWidth);
         int segmentIndex = 0;
 
+        int radius = (lineWidth - 1) / 2;
+        if (!ringMayTouchClip(x0, y0, r, radius)) return;
+        if (radius > 0 && lineType != LineType.DOTTED) {
+            strokeThickCircle(x0, y0, r, radius, c, runs);
+            return;
+        }
+
         int x = 0;
         int y = r;
         int d = 3 - 2 * r;
 
+        dash.reset(runs, 0);
         while (y >= x) {
-            drawCirclePoints(x0, y0, x, y, c, lineType, DOT_INTERVAL, DASH_INTERVAL, segmentIndex, lineWidth);
+            dash.moveTo(segmentIndex);
+            if (dash.isOn()) {
+                drawCirclePoints(x0, y0, x, y, c, radius);
+            }
             if (d < 0) {
                 d = d + 4 * x + 6;
             } else {
@@ -145,28 +254,113 @@ public class TrivialRasterizer implements Rasterizer {
         }
     }
 
-    private void drawCirclePoints(int x0, int y0, int x, int y, int color, LineType lineType, int dotInterval, int dashInterval, int segmentIndex, int lineWidth) {
-        int radius = (lineWidth - 1) / 2;
-        if (!shouldSkipPixel(lineType, segmentIndex, dotInterval, dashInterval)) {
-            drawFilledCircle(x0 + x, y0 + y, radius, color);
-            drawFilledCircle(x0 + y, y0 + x, radius, color);
-            drawFilledCircle(x0 - y, y0 + x, radius, color);
-            drawFilledCircle(x0 - x, y0 + y, radius, color);
-            drawFilledCircle(x0 - x, y0 - y, radius, color);
-            drawFilledCircle(x0 - y, y0 - x, radius, color);
-            drawFilledCircle(x0 + y, y0 - x, radius, color);
-            drawFilledCircle(x0 + x, y0 - y, radius, color);
+    // Bounding-box rejection: false when the ring lies wholly outside the clip, or the clip wholly inside its hole.
+    protected boolean ringMayTouchClip(int x0, int y0, int r, int radius) {
+        raster.getClipBounds(clip);
+        long outer = (long) r + radius + 1;
+        int right = clip.x + clip.width - 1, bottom = clip.y + clip.height - 1;
+        if (x0 + outer < clip.x || x0 - outer > right || y0 + outer < clip.y || y0 - outer > bottom) return false;
+        long inner = (long) r - radius - 1;
+        if (inner <= 0) return true;
+        long fx = Math.max(Math.abs((long) clip.x - x0), Math.abs((long) right - x0));
+        long fy = Math.max(Math.abs((long) clip.y - y0), Math.abs((long) bottom - y0));
+        return fx * fx + fy * fy >= inner * inner;
+    }
+
+    // Thick solid/dashed circles are drawn as an annulus (r - radius <= distance <= r + radius), row by row,
+    // so every pixel is written once. Dots stay as discs on the midpoint path since they do not overlap.
+    private void strokeThickCircle(int x0, int y0, int r, int radius, int color, StrokePattern.Runs runs) {
+        int outerRadius = r + radius;
+        int innerRadius = r - radius;
+        long outer2 = (long) outerRadius * outerRadius;
+        long inner2 = (long) innerRadius * innerRadius;
+        int dyFrom = Math.max(-outerRadius, clip.y - y0);
+        int dyTo = Math.min(outerRadius, clip.y + clip.height - 1 - y0);
+
+        for (int dy = dyFrom; dy <= dyTo; dy++) {
+            int y = y0 + dy;
+            int outer = (int) Math.sqrt(outer2 - (long) dy * dy);
+            // First column (x >= 0) outside the inner radius; 0 when the row misses the hole.
+            int inner = 0;
+            if (innerRadius > 0 && Math.abs(dy) < innerRadius) {
+                long rest = inner2 - (long) dy * dy;
+                inner = (int) Math.sqrt(rest);
+                if ((long) inner * inner < rest) inner++;
+            }
+
+            if (runs == null) {
+                if (inner == 0) {
+                    raster.fillSpan(y, x0 - outer, x0 + outer, color);
+                } else {
+                    raster.fillSpan(y, x0 - outer, x0 - inner, color);
+                    raster.fillSpan(y, x0 + inner, x0 + outer, color);
+                }
+            } else {
+                strokeDashedCircleRow(x0, y, dy, r, inner, outer, color, runs);
+            }
         }
     }
 
-    private boolean shouldSkipPixel(LineType lineType, int index, int dotInterval, int dashInterval) {
-        switch (lineType) {
-            case DOTTED:
-                return (index % dotInterval) != 0;
-            case DASHED:
-                return (index / dashInterval) % 2 != 0;
-            default:
-                return false;
+    // Walks the right half of an annulus row and mirrors it to the left. A pixel's pattern index is the
+    // midpoint step of its projection onto the circle: r * min(|x|, |dy|) / distance, the same in every octant.
+    // It grows with x up to column |dy| and shrinks after it, so both parts are walked towards column |dy|.
+    private void strokeDashedCircleRow(int x0, int y, int dy, int r, int inner, int outer, int color, StrokePattern.Runs runs) {
+        int ady = Math.abs(dy);
+        strokeDashedCirclePart(x0, y, dy, r, inner, Math.min(outer, ady), 1, color, runs);
+        strokeDashedCirclePart(x0, y, dy, r, outer, Math.max(inner, ady + 1), -1, color, runs);
+    }
+
+    // Columns from..to of one row, stepping by step, so the pattern index never falls and the dash cursor
+    // only moves forward: a pixel compares its squared distance against the end of the current run.
+    private void strokeDashedCirclePart(int x0, int y, int dy, int r, int from, int to, int step, int color,
+                                        StrokePattern.Runs runs) {
+        if ((long) (to - from) * step < 0) return;
+        int ady = Math.abs(dy);
+        double dy2 = (double) dy * dy;
+        double r2 = (double) r * r;
+        double distance = Math.sqrt((double) from * from + dy2);
+        dash.reset(runs, distance == 0 ? 0 : (long) ((double) r * Math.min(from, ady) / distance));
+        int runFrom = 0;
+        boolean drawing = false;
+        for (int x = from; ; x += step) {
+            double d2 = (double) x * x + dy2;
+            double m = Math.min(x, ady);
+            double next = dash.nextStart();
+            while (d2 > 0 && next * next * d2 <= r2 * m * m) {
+                dash.next();
+                next = dash.nextStart();
+            }
+            boolean on = dash.isOn();
+            if (on && !drawing) {
+                runFrom = x;
+                drawing = true;
+            } else if (!on && drawing) {
+                fillMirrored(x0, y, Math.min(runFrom, x - step), Math.max(runFrom, x - step), color);
+                drawing = false;
+            }
+            if (x == to) break;
         }
+        if (drawing) fillMirrored(x0, y, Math.min(runFrom, to), Math.max(runFrom, to), color);
+    }
+
+    // Columns from..to (from >= 0) right of x0 and their mirror left of it. Column 0 is shared by both
+    // halves, so the mirror starts at column 1.
+    private void fillMirrored(int x0, int y, int from, int to, int color) {
+        raster.fillSpan(y, x0 + from, x0 + to, color);
+        int mirrorFrom = Math.max(from, 1);
+        if (mirrorFrom <= to) {
+            raster.fillSpan(y, x0 - to, x0 - mirrorFrom, color);
+        }
+    }
+
+    private void drawCirclePoints(int x0, int y0, int x, int y, int color, int radius) {
+        drawFilledCircle(x0 + x, y0 + y, radius, color);
+        drawFilledCircle(x0 + y, y0 + x, radius, color);
+        drawFilledCircle(x0 - y, y0 + x, radius, color);
+        drawFilledCircle(x0 - x, y0 + y, radius, color);
+        drawFilledCircle(x0 - x, y0 - y, radius, color);
+        drawFilledCircle(x0 - y, y0 - x, radius, color);
+        drawFilledCircle(x0 + y, y0 - x, radius, color);
+        drawFilledCircle(x0 + x, y0 - y, radius, color);
     }
 }
@@ -0,0 +1,126 @@
+package rasters;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * View of another raster that only lets writes through inside its own rectangle.
+ * Views over disjoint rectangles can be written from different threads at the same time.
+ */
+public class ClippedRaster implements Raster {
+
+    private final Raster target;
+    private final int minX, minY, maxX, maxY;
+    // Current clip, always inside the view rectangle; min inclusive, max exclusive.
+    private int clipMinX, clipMinY, clipMaxX, clipMaxY;
+    private int color;
+
+    public ClippedRaster(Raster target, int x, int y, int width, int height) {
+        this.target = target;
+        this.minX = Math.max(x, 0);
+        this.minY = Math.max(y, 0);
+        this.maxX = Math.min(x + width, target.getWidth());
+        this.maxY = Math.min(y + height, target.getHeight());
+        clearClip();
+    }
+
+    @Override
+    public void clear() {
+        fillRect(minX, minY, maxX - minX, maxY - minY, color);
+    }
+
+    @Override
+    public void setClearColor(int color) {
+        this.color = color;
+    }
+
+    @Override
+    public int getWidth() {
+        return target.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return target.getHeight();
+    }
+
+    @Override
+    public int getPixel(int x, int y) {
+        return target.getPixel(x, y);
+    }
+
+    @Override
+    public void setPixel(int x, int y, int color) {
+        if (x < clipMinX || x >= clipMaxX || y < clipMinY || y >= clipMaxY) return;
+        target.setPixel(x, y, color);
+    }
+
+    @Override
+    public void blendPixel(int x, int y, int color, int coverage) {
+        if (x < clipMinX || x >= clipMaxX || y < clipMinY || y >= clipMaxY) return;
+        target.blendPixel(x, y, color, coverage);
+    }
+
+    @Override
+    public void fillSpan(int y, int x0, int x1, int color) {
+        if (y < clipMinY || y >= clipMaxY) return;
+        if (x0 < clipMinX) x0 = clipMinX;
+        if (x1 >= clipMaxX) x1 = clipMaxX - 1;
+        if (x0 > x1) return;
+        target.fillSpan(y, x0, x1, color);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height, int color) {
+        int yEnd = Math.min(y + height, clipMaxY);
+        for (int row = Math.max(y, clipMinY); row < yEnd; row++) {
+            fillSpan(row, x, x + width - 1, color);
+        }
+    }
+
+    @Override
+    public void copyRow(Raster source, int y, int x0, int x1) {
+        if (y < clipMinY || y >= clipMaxY) return;
+        if (x0 < clipMinX) x0 = clipMinX;
+        if (x1 >= clipMaxX) x1 = clipMaxX - 1;
+        if (x0 > x1) return;
+        target.copyRow(source, y, x0, x1);
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        clipMinX = Math.max(x, minX);
+        clipMinY = Math.max(y, minY);
+        clipMaxX = Math.min(x + width, maxX);
+        clipMaxY = Math.min(y + height, maxY);
+    }
+
+    @Override
+    public void clearClip() {
+        clipMinX = minX;
+        clipMinY = minY;
+        clipMaxX = maxX;
+        clipMaxY = maxY;
+    }
+
+    @Override
+    public Rectangle getClipBounds(Rectangle bounds) {
+        bounds.setBounds(clipMinX, clipMinY, clipMaxX - clipMinX, clipMaxY - clipMinY);
+        return bounds;
+    }
+
+    @Override
+    public Graphics getGraphics() {
+        return target.getGraphics();
+    }
+
+    @Override
+    public void repaint(Graphics graphics) {
+        target.repaint(graphics);
+    }
+
+    @Override
+    public BufferedImage getImg() {
+        return target.getImg();
+    }
+}
@@ -0,0 +1,183 @@
+package rasters;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pass-through raster that counts pixel writes and which pixels were touched, for overdraw statistics.
+ * Writes outside its rectangle are dropped like in {@link ClippedRaster}, so only pixels that really change
+ * are counted. Coverage is kept only for that rectangle, per row in 64-pixel words aligned to raster x = 0;
+ * views handed to different threads must not share a word, which holds for tiles whose x origin is a multiple
+ * of 64. One counter can be reset for each frame, so its coverage buffer is reused.
+ */
+public class CountingRaster implements Raster {
+
+    private Raster target;
+    private int minX, minY, maxX, maxY;
+    private int clipMinX, clipMinY, clipMaxX, clipMaxY;
+    private int color;
+    // Coverage word of column minX, and words per row of the rectangle.
+    private int firstWord, wordsPerRow;
+    private long[] touched = new long[0];
+    private final LongAdder written = new LongAdder();
+    private final LongAdder unique = new LongAdder();
+
+    public CountingRaster(Raster target) {
+        this(target, 0, 0, target.getWidth(), target.getHeight());
+    }
+
+    public CountingRaster(Raster target, int x, int y, int width, int height) {
+        reset(target, x, y, width, height);
+    }
+
+    // Starts counting from zero over a rectangle of target, e.g. for the next frame.
+    public void reset(Raster target, int x, int y, int width, int height) {
+        this.target = target;
+        this.minX = Math.max(x, 0);
+        this.minY = Math.max(y, 0);
+        this.maxX = Math.min(x + width, target.getWidth());
+        this.maxY = Math.min(y + height, target.getHeight());
+        this.firstWord = minX >> 6;
+        this.wordsPerRow = maxX > minX ? ((maxX - 1) >> 6) - firstWord + 1 : 0;
+        int words = wordsPerRow * Math.max(maxY - minY, 0);
+        if (touched.length < words) {
+            touched = new long[words];
+        } else {
+            Arrays.fill(touched, 0, words, 0L);
+        }
+        written.reset();
+        unique.reset();
+        clearClip();
+    }
+
+    // Pixel writes, counting a pixel once per write.
+    public long getPixelsWritten() {
+        return written.sum();
+    }
+
+    // Distinct pixels written at least once.
+    public long getUniquePixels() {
+        return unique.sum();
+    }
+
+    private void mark(int y, int x0, int x1) {
+        written.add(x1 - x0 + 1);
+        int row = (y - minY) * wordsPerRow - firstWord;
+        long fresh = 0;
+        for (int word = x0 >> 6; word <= x1 >> 6; word++) {
+            int from = Math.max(x0, word << 6) & 63;
+            int to = Math.min(x1, (word << 6) + 63) & 63;
+            long mask = (-1L >>> (63 - to)) & (-1L << from);
+            long old = touched[row + word];
+            fresh += Long.bitCount(mask & ~old);
+            touched[row + word] = old | mask;
+        }
+        if (fresh != 0) unique.add(fresh);
+    }
+
+    @Override
+    public void clear() {
+        fillRect(minX, minY, maxX - minX, maxY - minY, color);
+    }
+
+    @Override
+    public void setClearColor(int color) {
+        this.color = color;
+    }
+
+    @Override
+    public int getWidth() {
+        return target.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return target.getHeight();
+    }
+
+    @Override
+    public int getPixel(int x, int y) {
+        return target.getPixel(x, y);
+    }
+
+    @Override
+    public void setPixel(int x, int y, int color) {
+        if (x < clipMinX || x >= clipMaxX || y < clipMinY || y >= clipMaxY) return;
+        mark(y, x, x);
+        target.setPixel(x, y, color);
+    }
+
+    @Override
+    public void blendPixel(int x, int y, int color, int coverage) {
+        if (x < clipMinX || x >= clipMaxX || y < clipMinY || y >= clipMaxY) return;
+        mark(y, x, x);
+        target.blendPixel(x, y, color, coverage);
+    }
+
+    @Override
+    public void fillSpan(int y, int x0, int x1, int color) {
+        if (y < clipMinY || y >= clipMaxY) return;
+        if (x0 < clipMinX) x0 = clipMinX;
+        if (x1 >= clipMaxX) x1 = clipMaxX - 1;
+        if (x0 > x1) return;
+        mark(y, x0, x1);
+        target.fillSpan(y, x0, x1, color);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height, int color) {
+        int yEnd = Math.min(y + height, clipMaxY);
+        for (int row = Math.max(y, clipMinY); row < yEnd; row++) {
+            fillSpan(row, x, x + width - 1, color);
+        }
+    }
+
+    @Override
+    public void copyRow(Raster source, int y, int x0, int x1) {
+        if (y < clipMinY || y >= clipMaxY) return;
+        if (x0 < clipMinX) x0 = clipMinX;
+        if (x1 >= clipMaxX) x1 = clipMaxX - 1;
+        if (x0 > x1) return;
+        mark(y, x0, x1);
+        target.copyRow(source, y, x0, x1);
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        clipMinX = Math.max(x, minX);
+        clipMinY = Math.max(y, minY);
+        clipMaxX = Math.min(x + width, maxX);
+        clipMaxY = Math.min(y + height, maxY);
+    }
+
+    @Override
+    public void clearClip() {
+        clipMinX = minX;
+        clipMinY = minY;
+        clipMaxX = maxX;
+        clipMaxY = maxY;
+    }
+
+    @Override
+    public Rectangle getClipBounds(Rectangle bounds) {
+        bounds.setBounds(clipMinX, clipMinY, clipMaxX - clipMinX, clipMaxY - clipMinY);
+        return bounds;
+    }
+
+    @Override
+    public Graphics getGraphics() {
+        return target.getGraphics();
+    }
+
+    @Override
+    public void repaint(Graphics graphics) {
+        target.repaint(graphics);
+    }
+
+    @Override
+    public BufferedImage getImg() {
+        return target.getImg();
+    }
+}
@@ -17,6 +17,26 @@ public interface Raster {
 
     void setPixel(int x, int y, int color);
 
+    // Draws color over the pixel with its alpha scaled by coverage (0..255), for anti-aliased edges.
+    void blendPixel(int x, int y, int color, int coverage);
+
+    // Fills pixels x0..x1 (inclusive) of row y, clipped to the raster.
+    void fillSpan(int y, int x0, int x1, int color);
+
+    // Fills a rectangle, clipped to the raster.
+    void fillRect(int x, int y, int width, int height, int color);
+
+    // Copies pixels x0..x1 (inclusive) of row y from another raster of the same size.
+    void copyRow(Raster source, int y, int x0, int x1);
+
+    // Restricts all pixel writes to the given rectangle until clearClip is called.
+    void setClip(int x, int y, int width, int height);
+
+    void clearClip();
+
+    // Stores the rectangle writes are currently restricted to in bounds and returns it.
+    Rectangle getClipBounds(Rectangle bounds);
+
     Graphics getGraphics();
 
     void repaint(Graphics graphics);
@@ -2,18 +2,43 @@ package rasters;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 public class RasterBufferedImage implements Raster {
 
+    private static final int OPAQUE = 0xff000000;
+
     private final BufferedImage img;
+    // Backing array of img, row-major; writes go here directly instead of through setRGB.
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final int alphaMask;
     private int color;
+    // Write clip, min inclusive, max exclusive.
+    private int clipMinX, clipMinY, clipMaxX, clipMaxY;
 
     public BufferedImage getImg() {
         return img;
     }
 
     public RasterBufferedImage(int width, int height) {
-        img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this(width, height, false);
+    }
+
+    // A transparent raster keeps per-pixel alpha (TYPE_INT_ARGB) and clears to fully transparent by default.
+    public RasterBufferedImage(int width, int height, boolean transparent) {
+        img = new BufferedImage(width, height, transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        alphaMask = transparent ? 0 : OPAQUE;
+        pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        this.width = width;
+        this.height = height;
+        clearClip();
+    }
+
+    public int[] getPixels() {
+        return pixels;
     }
 
     public void repaint(Graphics graphics) {
@@ -26,19 +51,102 @@ public class RasterBufferedImage implements Raster {
 
     @Override
     public int getPixel(int x, int y) {
-        return img.getRGB(x, y);
+        return pixels[y * width + x] | alphaMask;
     }
 
     @Override
     public void setPixel(int x, int y, int color) {
-        img.setRGB(x, y, color);
+        if (x < clipMinX || x >= clipMaxX || y < clipMinY || y >= clipMaxY) return;
+        pixels[y * width + x] = color;
+    }
+
+    @Override
+    public void blendPixel(int x, int y, int color, int coverage) {
+        if (x < clipMinX || x >= clipMaxX || y < clipMinY || y >= clipMaxY) return;
+        int i = y * width + x;
+        pixels[i] = blend(pixels[i] | alphaMask, color, coverage);
+    }
+
+    // Source-over of a non-premultiplied ARGB color whose alpha is scaled by coverage.
+    static int blend(int dst, int src, int coverage) {
+        int a = ((src >>> 24) * coverage + 255) >> 8;
+        if (a == 0) return dst;
+        int da = dst >>> 24;
+        if (da == 255) {
+            // Opaque destination, the common case: both channel pairs at once, weights summing to 256.
+            int w = a + (a >> 7);
+            int rb = ((src & 0xff00ff) * w + (dst & 0xff00ff) * (256 - w)) >>> 8;
+            int g = ((src & 0x00ff00) * w + (dst & 0x00ff00) * (256 - w)) >>> 8;
+            return OPAQUE | (rb & 0xff00ff) | (g & 0x00ff00);
+        }
+        int keep = da * (255 - a) / 255;
+        int outA = a + keep;
+        if (outA == 0) return 0;
+        int r = (((src >> 16) & 0xff) * a + ((dst >> 16) & 0xff) * keep) / outA;
+        int g = (((src >> 8) & 0xff) * a + ((dst >> 8) & 0xff) * keep) / outA;
+        int b = ((src & 0xff) * a + (dst & 0xff) * keep) / outA;
+        return outA << 24 | r << 16 | g << 8 | b;
+    }
+
+    @Override
+    public void fillSpan(int y, int x0, int x1, int color) {
+        if (y < clipMinY || y >= clipMaxY) return;
+        if (x0 < clipMinX) x0 = clipMinX;
+        if (x1 >= clipMaxX) x1 = clipMaxX - 1;
+        if (x0 > x1) return;
+        int row = y * width;
+        Arrays.fill(pixels, row + x0, row + x1 + 1, color);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height, int color) {
+        int yEnd = Math.min(y + height, clipMaxY);
+        for (int row = Math.max(y, clipMinY); row < yEnd; row++) {
+            fillSpan(row, x, x + width - 1, color);
+        }
+    }
+
+    @Override
+    public void copyRow(Raster source, int y, int x0, int x1) {
+        if (y < clipMinY || y >= clipMaxY) return;
+        if (x0 < clipMinX) x0 = clipMinX;
+        if (x1 >= clipMaxX) x1 = clipMaxX - 1;
+        if (x0 > x1) return;
+        int row = y * width;
+        if (source instanceof RasterBufferedImage) {
+            System.arraycopy(((RasterBufferedImage) source).pixels, row + x0, pixels, row + x0, x1 - x0 + 1);
+        } else {
+            for (int x = x0; x <= x1; x++) {
+                pixels[row + x] = source.getPixel(x, y);
+            }
+        }
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        clipMinX = Math.max(x, 0);
+        clipMinY = Math.max(y, 0);
+        clipMaxX = Math.min(x + width, this.width);
+        clipMaxY = Math.min(y + height, this.height);
+    }
+
+    @Override
+    public void clearClip() {
+        clipMinX = 0;
+        clipMinY = 0;
+        clipMaxX = width;
+        clipMaxY = height;
+    }
+
+    @Override
+    public Rectangle getClipBounds(Rectangle bounds) {
+        bounds.setBounds(clipMinX, clipMinY, clipMaxX - clipMinX, clipMaxY - clipMinY);
+        return bounds;
     }
 
     @Override
     public void clear() {
-        Graphics g = img.getGraphics();
-        g.setColor(new Color(color));
-        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+        Arrays.fill(pixels, color);
     }
 
     @Override
@@ -48,12 +156,12 @@ public class RasterBufferedImage implements Raster {
 
     @Override
     public int getWidth() {
-        return img.getWidth();
+        return width;
     }
 
     @Override
     public int getHeight() {
-        return img.getHeight();
+        return height;
     }
 
 }
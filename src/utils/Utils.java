@@ -4,6 +4,11 @@ import models.Point;
 
 public class Utils {
     public static Point snapPoint(Point p1, Point p2, boolean forceSquare) {
+        return snapPoint(p1, p2, forceSquare, new Point(0, 0));
+    }
+
+    // Zapíše připnutý bod do out (může to být i p2) a vrátí ho; náhled při tažení tak nic nealokuje.
+    public static Point snapPoint(Point p1, Point p2, boolean forceSquare, Point out) {
         // Získání bodů
         int x1 = p1.getX();
         int y1 = p1.getY();
@@ -15,48 +20,41 @@ public class Utils {
         int disty = y2 - y1;
 
         // Ověření (Pokud jsou souřadnice na sobě)
-        if (distx == 0 && disty == 0) return p2;
+        if (distx == 0 && disty == 0) return set(out, x2, y2);
 
         // Pokud je mode Box tak to přinutí pouze diagonální snap
         if (forceSquare) {
             int side = Math.max(Math.abs(distx), Math.abs(disty));
-            return new Point(p1.getX() + (int) Math.signum(distx) * side, p1.getY() + (int) Math.signum(disty) * side);
+            return set(out, x1 + Integer.signum(distx) * side, y1 + Integer.signum(disty) * side);
         }
 
-        // Horizontalní a Vertikální bod
+        // Horizontalní (x2, y1) a vertikální (x1, y2) bod
         /*
-        Bere opačné souřadnice a získává přesnou vertikální a horizontální souřadnici
+        Bere opačné souřadnice a získává přesnou vertikální a horizontální souřadnici;
+        jejich vzdálenost od myši je jen rozdíl ve druhé souřadnici
         */
-        Point horiz = new Point(x2, y1);
-        Point vert = new Point(x1, y2);
+        long horizDist = (long) disty * disty;
+        long vertDist = (long) distx * distx;
 
         // Výpočet diagonalního bodu
         /*
         Vypočítává absulutní, minimální a počítá diagonální bod
          */
-        int absDistx = Math.abs(distx);
-        int absDisty = Math.abs(disty);
-        int min = Math.min(absDistx, absDisty);
-        int sx = Integer.signum(distx);
-        int sy = Integer.signum(disty);
-        Point diag = new Point(x1 + sx * min, y1 + sy * min);
-
-        // Výběr bodů (Kandidáti na připnutí)
-        Point[] candidates = new Point[]{horiz, vert, diag};
-
-        // Počítání myšle k nejbližšímu bodu
-        Point best = candidates[0];
-        long bestDist = dist2(best, p2);
-        // Dle vzdálenosti vybírá nejlepšího kandidáta
-        for (int i = 1; i < candidates.length; i++) {
-
-            long d = dist2(candidates[i], p2);
-            if (d < bestDist) {
-                bestDist = d;
-                best = candidates[i];
-            }
-        }
-        return best;
+        int min = Math.min(Math.abs(distx), Math.abs(disty));
+        int diagX = x1 + Integer.signum(distx) * min;
+        int diagY = y1 + Integer.signum(disty) * min;
+        long diagDist = (long) (diagX - x2) * (diagX - x2) + (long) (diagY - y2) * (diagY - y2);
+
+        // Výběr nejbližšího kandidáta v pořadí horizontální, vertikální, diagonální
+        if (horizDist <= vertDist && horizDist <= diagDist) return set(out, x2, y1);
+        if (vertDist <= diagDist) return set(out, x1, y2);
+        return set(out, diagX, diagY);
+    }
+
+    private static Point set(Point out, int x, int y) {
+        out.setX(x);
+        out.setY(y);
+        return out;
     }
 
     public static Point snapPoint(Point p1, Point p2) {
@@ -70,4 +68,41 @@ public class Utils {
         return distanx * distanx + distany * distany;
     }
 
+    // Hit-testing helpers; all compare squared distances, no square roots.
+    public static boolean isPointNearPoint(Point p, Point q, int threshold) {
+        return dist2(p, q) < (long) threshold * threshold;
+    }
+
+    public static boolean isPointNearSegment(Point p, Point a, Point b, int threshold) {
+        long px = (long) b.getX() - a.getX();
+        long py = (long) b.getY() - a.getY();
+        long len2 = px * px + py * py;
+        if (len2 == 0) {
+            return isPointNearPoint(p, a, threshold);
+        }
+
+        long wx = (long) p.getX() - a.getX();
+        long wy = (long) p.getY() - a.getY();
+        long dot = wx * px + wy * py;
+        if (dot <= 0) {
+            return isPointNearPoint(p, a, threshold);
+        }
+        if (dot >= len2) {
+            return isPointNearPoint(p, b, threshold);
+        }
+        // Squared perpendicular distance is cross^2 / len2.
+        long cross = wx * py - wy * px;
+        return (double) cross * cross < (double) threshold * threshold * len2;
+    }
+
+    public static boolean isPointNearCircleEdge(Point p, Point center, int radius, int threshold) {
+        long d2 = dist2(p, center);
+        long outer = (long) radius + threshold;
+        long inner = (long) radius - threshold;
+        return d2 < outer * outer && (inner < 0 || d2 > inner * inner);
+    }
+
+    public static boolean isPointInsideCircle(Point p, Point center, int radius) {
+        return dist2(p, center) < (long) radius * radius;
+    }
 }